@@ -0,0 +1,72 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.benchmark;
+
+import ${package}.contextview.processor.BreadcrumbGenerator;
+import ${package}.contextview.processor.RoleAuthorizationFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request steps of the tree engine on the compiled configuration:
+ * role filtering and breadcrumbs
+ *
+ * @author TomEEx Dev Team
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+
+    private final RoleAuthorizationFilter roleFilter = new RoleAuthorizationFilter();
+    private final BreadcrumbGenerator breadcrumbGenerator = new BreadcrumbGenerator();
+
+    /**
+     * Filtered copy of the configuration for a role
+     */
+    @Benchmark
+    public JsonNode filterByRole(ModuleState state) {
+        return roleFilter.filterByRole(state.compiledData, state.role, false);
+    }
+
+    /**
+     * Breadcrumbs of every contextview, on a copy of the configuration
+     * (subtract {@link ${symbol_pound}deepCopy})
+     */
+    @Benchmark
+    public JsonNode addBreadcrumbs(ModuleState state) {
+        return breadcrumbGenerator.addBreadcrumbs((ObjectNode) state.compiledData.deepCopy());
+    }
+
+    /**
+     * Baseline of {@link ${symbol_pound}addBreadcrumbs}
+     */
+    @Benchmark
+    public JsonNode deepCopy(ModuleState state) {
+        return state.compiledData.deepCopy();
+    }
+
+    /**
+     * What a tree engine request without role snapshots does
+     */
+    @Benchmark
+    public JsonNode filterAndBreadcrumbs(ModuleState state) {
+        JsonNode filtered = roleFilter.filterByRole(state.compiledData, state.role, false);
+        return breadcrumbGenerator.addBreadcrumbs((ObjectNode) filtered);
+    }
+}
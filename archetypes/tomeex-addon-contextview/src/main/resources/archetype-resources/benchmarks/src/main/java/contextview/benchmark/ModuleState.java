@@ -0,0 +1,88 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.benchmark;
+
+import ${package}.contextview.processor.ContextViewProcessor;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A synthetic module written to a temporary directory, with a processor
+ * that has already compiled it
+ *
+ * @author TomEEx Dev Team
+ */
+@State(Scope.Benchmark)
+public class ModuleState {
+
+    @Param({"100", "1000"})
+    public int contextviews;
+
+    @Param({"20"})
+    public int forms;
+
+    @Param({"4"})
+    public int depth;
+
+    @Param({"5"})
+    public int roles;
+
+    public Path baseDir;
+    public ContextViewProcessor processor;
+
+    /** Role of the benchmarked requests */
+    public String role;
+
+    /** Contextview requested by single-contextview benchmarks (end of a chain) */
+    public String contextviewKey;
+
+    /** Compiled, unfiltered configuration (shared, must not be modified) */
+    public JsonNode compiledData;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        baseDir = new SyntheticModule(contextviews, forms, depth, roles)
+            .writeTo(Files.createTempDirectory("contextview-bench"));
+
+        role = roles > 0 ? SyntheticModule.role(1) : null;
+        contextviewKey = SyntheticModule.key(Math.min(contextviews, depth) - 1);
+
+        processor = newProcessor();
+        compiledData = processor.getCompiledConfiguration(SyntheticModule.JSON_PATH).getData();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        processor.shutdown();
+        deleteRecursively(baseDir);
+    }
+
+    /**
+     * New processor on the module directory (file checks disabled)
+     */
+    public ContextViewProcessor newProcessor() {
+        ContextViewProcessor result = new ContextViewProcessor(baseDir);
+        result.setCheckIntervalMillis(Long.MAX_VALUE);
+        return result;
+    }
+
+    static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
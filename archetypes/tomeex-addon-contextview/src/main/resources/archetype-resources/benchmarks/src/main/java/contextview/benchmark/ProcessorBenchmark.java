@@ -0,0 +1,55 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ContextViewProcessor: cached requests and (re)compilation
+ *
+ * @author TomEEx Dev Team
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessorBenchmark {
+
+    /**
+     * Request for the full configuration served from the compiled cache
+     */
+    @Benchmark
+    public JsonNode processConfiguration(ModuleState state) throws IOException {
+        return state.processor.processConfiguration(SyntheticModule.JSON_PATH, state.role, true, false);
+    }
+
+    /**
+     * Request for a single contextview served from the compiled cache
+     */
+    @Benchmark
+    public JsonNode processContextView(ModuleState state) throws IOException {
+        return state.processor.processContextView(
+            SyntheticModule.JSON_PATH, state.contextviewKey, state.role, true, false);
+    }
+
+    /**
+     * Full compilation from disk: main.json, every form and the role snapshots
+     */
+    @Benchmark
+    public Object compileConfiguration(ModuleState state) throws IOException {
+        state.processor.invalidateCache();
+        return state.processor.getCompiledConfiguration(SyntheticModule.JSON_PATH);
+    }
+}
@@ -0,0 +1,137 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.benchmark;
+
+import ${package}.contextview.core.ContextViewMapper;
+import ${package}.contextview.processor.ContextViewProcessor;
+import ${package}.contextview.servlet.ContextViewServlet;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response bodies: serialization of the tree and streaming engines, and
+ * end-to-end requests through ContextViewServlet
+ *
+ * @author TomEEx Dev Team
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    /**
+     * ContextViewServlet initialized on the synthetic module
+     */
+    @State(Scope.Benchmark)
+    public static class ServletState {
+
+        @Param({"tree", "streaming"})
+        public String engine;
+
+        @Param({"config", "list", "contextview"})
+        public String endpoint;
+
+        ContextViewServlet servlet;
+        HttpServletRequest request;
+
+        @Setup(Level.Trial)
+        public void setUp(ModuleState module) throws ServletException {
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("contextviews.path", module.baseDir.toString());
+            parameters.put("contextviews.engine", engine);
+            parameters.put("contextviews.watch", "false");
+            parameters.put("contextviews.cache.checkInterval", String.valueOf(Long.MAX_VALUE));
+
+            servlet = new ContextViewServlet();
+            servlet.init(ServletStubs.config("ContextViewServlet", parameters));
+
+            String pathInfo = "contextview".equals(endpoint) ? "/" + module.contextviewKey : "/" + endpoint;
+            request = ServletStubs.get(pathInfo, module.role);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            servlet.destroy();
+        }
+    }
+
+    private final ObjectMapper objectMapper = ContextViewMapper.get();
+
+    /**
+     * Tree engine body: filtered configuration serialized with Jackson
+     * (no response cache)
+     */
+    @Benchmark
+    public long serializeTree(ModuleState state) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        objectMapper.writeValue(out,
+            state.processor.processConfiguration(SyntheticModule.JSON_PATH, state.role, true, false));
+        return out.count;
+    }
+
+    /**
+     * Streaming engine body: filtered while writing (no response cache)
+     */
+    @Benchmark
+    public long serializeStreaming(ModuleState state) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        ContextViewProcessor.CompiledConfiguration compiled =
+            state.processor.getCompiledConfiguration(SyntheticModule.JSON_PATH);
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            state.processor.writeConfiguration(compiled, state.role, true, false, generator);
+        }
+        return out.count;
+    }
+
+    /**
+     * GET request through ContextViewServlet, including its response cache
+     */
+    @Benchmark
+    public long servlet(ServletState state) throws ServletException, IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        state.servlet.service(state.request, ServletStubs.response(out));
+        return out.count;
+    }
+
+    /**
+     * Response sink counting the bytes written
+     */
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
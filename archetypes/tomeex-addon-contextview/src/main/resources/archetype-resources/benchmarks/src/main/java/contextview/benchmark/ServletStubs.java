@@ -0,0 +1,131 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.benchmark;
+
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+
+/**
+ * Minimal servlet container objects for calling a servlet in-process.
+ * Only what ContextViewServlet uses is answered; every other method
+ * returns null, false or zero.
+ *
+ * @author TomEEx Dev Team
+ */
+final class ServletStubs {
+
+    private ServletStubs() {
+    }
+
+    /**
+     * Servlet config whose context returns the given init parameters
+     */
+    static ServletConfig config(String servletName, Map<String, String> initParameters) {
+        ServletContext context = stub(ServletContext.class, (proxy, method, args) -> {
+            if ("getInitParameter".equals(method.getName())) {
+                return initParameters.get((String) args[0]);
+            }
+            return null;
+        });
+
+        return stub(ServletConfig.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getServletContext":
+                    return context;
+                case "getServletName":
+                    return servletName;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * GET request on a path, from a session with the given active role
+     */
+    static HttpServletRequest get(String pathInfo, String activeRole) {
+        HttpSession session = stub(HttpSession.class, (proxy, method, args) ->
+            "getAttribute".equals(method.getName()) && "active_role".equals(args[0]) ? activeRole : null);
+
+        return stub(HttpServletRequest.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getMethod":
+                    return "GET";
+                case "getPathInfo":
+                    return pathInfo;
+                case "getSession":
+                    return session;
+                case "getProtocol":
+                    return "HTTP/1.1";
+                default:
+                    return null;
+            }
+        });
+    }
+
+    /**
+     * Response whose body is written to the given stream
+     */
+    static HttpServletResponse response(OutputStream body) {
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                body.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        return stub(HttpServletResponse.class, (proxy, method, args) ->
+            "getOutputStream".equals(method.getName()) ? out : null);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName() + " stub";
+                }
+            }
+
+            Object result = handler.invoke(proxy, method, args);
+            Class<?> returnType = method.getReturnType();
+            if (result == null && returnType.isPrimitive() && returnType != void.class) {
+                // Default value of the primitive type
+                return Array.get(Array.newInstance(returnType, 1), 0);
+            }
+            return result;
+        });
+    }
+}
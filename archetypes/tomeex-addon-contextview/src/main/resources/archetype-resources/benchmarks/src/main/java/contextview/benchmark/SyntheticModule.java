@@ -0,0 +1,198 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Generator of synthetic contextview modules (json/main.json and
+ * json/forms/*.json) for the benchmarks.
+ *
+ * Contextviews form goto-contextview chains of the given depth, so every
+ * contextview gets breadcrumbs up to (depth - 1) levels long; their options
+ * contain sections nested to the same depth. Roles role0..roleN-1 are
+ * spread over contextviews, action items, sections and fields, with a third
+ * of the contextviews left public. The output only depends on the
+ * parameters.
+ *
+ * @author TomEEx Dev Team
+ */
+public class SyntheticModule {
+
+    public static final String JSON_PATH = "json/main.json";
+
+    private static final String[] COMPONENTS = {"custom-grid", "custom-form", "custom-view"};
+    private static final int FIELDS_PER_FORM = 20;
+
+    private final int contextviews;
+    private final int forms;
+    private final int depth;
+    private final int roles;
+    private final JsonNodeFactory factory = JsonNodeFactory.instance;
+
+    /**
+     * @param contextviews Number of contextviews
+     * @param forms Number of distinct form files
+     * @param depth Length of goto-contextview chains and nesting of option sections
+     * @param roles Number of distinct roles (0 makes everything public)
+     */
+    public SyntheticModule(int contextviews, int forms, int depth, int roles) {
+        this.contextviews = contextviews;
+        this.forms = forms;
+        this.depth = Math.max(1, depth);
+        this.roles = roles;
+    }
+
+    public static String key(int index) {
+        return "CV_" + index;
+    }
+
+    public static String role(int index) {
+        return "role" + index;
+    }
+
+    /**
+     * Write the module under a contextviews base directory
+     *
+     * @return The base directory
+     */
+    public Path writeTo(Path baseDir) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Path formsDir = Files.createDirectories(baseDir.resolve("json").resolve("forms"));
+
+        mapper.writeValue(baseDir.resolve(JSON_PATH).toFile(), mainJson());
+        for (int i = 0; i < forms; i++) {
+            mapper.writeValue(formsDir.resolve(formName(i) + ".json").toFile(), form(i));
+        }
+        return baseDir;
+    }
+
+    /**
+     * Build main.json
+     */
+    public ObjectNode mainJson() {
+        ObjectNode root = factory.objectNode();
+        root.put("name", "synthetic");
+        root.putObject("options").put("serviceTermsRequired", false);
+
+        ObjectNode container = root.putObject("contextviews");
+        for (int i = 0; i < contextviews; i++) {
+            container.set(key(i), contextview(i));
+        }
+        return root;
+    }
+
+    /**
+     * Build a form file
+     */
+    public ObjectNode form(int index) {
+        ObjectNode form = factory.objectNode();
+        ObjectNode schema = form.putObject("schema");
+        ArrayNode grid = form.putArray("grid");
+
+        for (int k = 0; k < FIELDS_PER_FORM; k++) {
+            String name = "field_" + k;
+            ObjectNode field = schema.putObject(name);
+            field.put("type", k % 4 == 0 ? "number" : "string");
+            field.put("title", "Field " + k + " of form " + index);
+            if (k % 5 == 0) {
+                field.put("readOnly_for_update", true);
+            }
+            if (k % 6 == 0) {
+                field.put("readOnly_for_insert", true);
+            }
+            if (k % 7 == 0) {
+                field.put("enum_function", "load_" + name);
+                field.putObject("search").put("search_enum_function", "search_" + name);
+            }
+            grid.addObject().put("key", name).put("width", "5%");
+        }
+        return form;
+    }
+
+    private ObjectNode contextview(int i) {
+        String component = COMPONENTS[i % COMPONENTS.length];
+
+        ObjectNode contextview = factory.objectNode();
+        contextview.put("title", "ContextView " + i);
+        if (i % 2 == 0) {
+            contextview.put("breadcrumb", "CV " + i);
+        }
+        contextview.put("route", "cv/" + i);
+        contextview.put("component", component);
+        if (roles > 0 && i % 3 != 0) {
+            ArrayNode cvRoles = contextview.putArray("roles").add(role(i % roles));
+            if (i % 2 == 0) {
+                cvRoles.add(role((i + 1) % roles));
+            }
+        }
+
+        ObjectNode options = contextview.putObject("options");
+        options.put("title", "Options " + i);
+        if (forms > 0 && !"custom-view".equals(component)) {
+            options.put("schema", formName(i % forms));
+            options.put("schemaMode", i % 2 == 0 ? "insert" : "update");
+        }
+
+        ObjectNode table = options.putObject("table");
+        table.putObject("table_join").put("field_alias", "alias_" + i);
+        table.put("data", "table_" + i);
+        table.put("pageSize", 25);
+
+        options.set("section", section(i, 1));
+
+        // Next contextview of the chain
+        ArrayNode items = options.putObject("actions-top").putArray("items");
+        if ((i + 1) % depth != 0 && i + 1 < contextviews) {
+            items.addObject()
+                .put("code", "next")
+                .put("goto-contextview", key(i + 1).toLowerCase(Locale.ROOT));
+        }
+        ObjectNode export = items.addObject().put("code", "export");
+        if (roles > 0) {
+            export.putArray("roles").add(role(i % roles));
+        }
+
+        return contextview;
+    }
+
+    private ObjectNode section(int i, int level) {
+        ObjectNode section = factory.objectNode();
+        section.put("title", "Section " + level);
+        if (roles > 0 && level % 2 == 1) {
+            section.put("role", role((i + level) % roles));
+        }
+        if (level == 1) {
+            section.put("hide_in_maintenance", true);
+        }
+
+        ArrayNode fields = section.putArray("fields");
+        for (int f = 0; f < 3; f++) {
+            ObjectNode field = fields.addObject().put("name", "s" + level + "_f" + f);
+            if (roles > 0 && f == 1) {
+                field.put("role", role((i + f) % roles));
+            }
+            if (f == 2) {
+                field.put("backend", true);
+            }
+        }
+
+        if (level < depth) {
+            section.set("section", section(i, level + 1));
+        }
+        return section;
+    }
+
+    private static String formName(int index) {
+        return "FORM_" + index;
+    }
+}
@@ -0,0 +1,42 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.core;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+/**
+ * ObjectMapper shared by the ContextView servlet, processor and response
+ * cache, configured once so its serializers (and their warm-up) are shared.
+ *
+ * Blackbird replaces the reflective accessors of POJOs such as ContextView
+ * and ContextViewOptions with generated lambdas. Streams passed to the
+ * mapper are not closed, values are not flushed one by one and beans
+ * without properties serialize as {}.
+ *
+ * The mapper is shared: it must not be reconfigured.
+ *
+ * @author TomEEx Dev Team
+ */
+public final class ContextViewMapper {
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+        .addModule(new JavaTimeModule())
+        .addModule(new BlackbirdModule())
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .build();
+
+    private ContextViewMapper() {
+    }
+
+    public static ObjectMapper get() {
+        return MAPPER;
+    }
+}
@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Breadcrumb navigation generator for contextviews.
@@ -17,6 +18,13 @@ import java.util.*;
  * Generates hierarchical breadcrumb navigation by analyzing contextview relationships
  * through goto-contextview actions.
  *
+ * The goto-contextview / list-contextview links are indexed once per
+ * configuration (child -> ordered parents), so each breadcrumb chain is a
+ * walk up that index instead of a scan of every contextview per level. The
+ * index can also be built on the unfiltered configuration and walked with a
+ * role's {@link FilterRules}, which is how the streaming engine computes
+ * breadcrumbs without a filtered copy.
+ *
  * @author TomEEx Dev Team
  */
 #if($enableBreadcrumbs == "true")
@@ -24,6 +32,7 @@ public class BreadcrumbGenerator {
 
     private static final Logger logger = LoggerFactory.getLogger(BreadcrumbGenerator.class);
     private static final int MAX_RECURSION_DEPTH = 10;
+    private static final String[] ACTION_GROUPS = {"actions-top", "actions-row"};
 
     /**
      * Add breadcrumbs to all contextviews - equivalent to PHP lines 377-418
@@ -34,66 +43,20 @@ public class BreadcrumbGenerator {
         }
 
         ObjectNode contextviews = (ObjectNode) jsonData.get("contextviews");
-        Map<String, List<BreadcrumbEntry>> breadcrumbMap = new HashMap<>();
-
-        // Generate breadcrumbs for each contextview
-        Iterator<String> contextviewKeys = contextviews.fieldNames();
-        while (contextviewKeys.hasNext()) {
-            String contextviewKey = contextviewKeys.next();
-            List<BreadcrumbEntry> breadcrumb = generateBreadcrumb(contextviewKey, contextviews, 0);
-            breadcrumbMap.put(contextviewKey, breadcrumb);
-        }
-
-        // Add breadcrumbs to contextviews
-        for (Map.Entry<String, List<BreadcrumbEntry>> entry : breadcrumbMap.entrySet()) {
-            String contextviewKey = entry.getKey();
-            List<BreadcrumbEntry> breadcrumb = entry.getValue();
-
-            if (!breadcrumb.isEmpty()) {
-                ObjectNode contextview = (ObjectNode) contextviews.get(contextviewKey);
-                String scenarioTitle = contextview.has("title") ?
-                    contextview.get("title").asText() : contextviewKey;
-                String scenarioBreadcrumbTitle = contextview.has("breadcrumb") ?
-                    contextview.get("breadcrumb").asText() : scenarioTitle;
-
-                // Check if first breadcrumb matches current contextview (PHP: line 391)
-                if (!breadcrumb.isEmpty() &&
-                    (breadcrumb.get(0).title.equals(scenarioTitle) ||
-                     breadcrumb.get(0).title.equals(scenarioBreadcrumbTitle))) {
-
-                    // Build breadcrumb object (PHP: lines 402-412)
-                    ArrayNode breadcrumbArray = contextview.objectNode().arrayNode();
-                    StringBuilder pathString = new StringBuilder();
-
-                    // Reverse breadcrumb (PHP: array_reverse)
-                    Collections.reverse(breadcrumb);
-
-                    for (BreadcrumbEntry bc : breadcrumb) {
-                        ObjectNode bcNode = contextview.objectNode();
-                        bcNode.put("title", bc.title);
-                        if (bc.route != null) {
-                            bcNode.put("route", bc.route);
-                        }
-                        breadcrumbArray.add(bcNode);
-
-                        if (pathString.length() > 0) {
-                            pathString.append(" > ");
-                        }
-                        pathString.append(bc.title);
-                    }
+        ParentIndex parentIndex = buildParentIndex(contextviews);
 
-                    // Add breadcrumbs array to contextview
-                    ArrayNode breadcrumbsContainer = contextview.objectNode().arrayNode();
-                    ObjectNode breadcrumbObject = contextview.objectNode();
-                    breadcrumbObject.set("to_array", breadcrumbArray);
-                    breadcrumbObject.put("to_string", pathString.toString());
-                    breadcrumbsContainer.add(breadcrumbObject);
+        Iterator<Map.Entry<String, JsonNode>> fields = contextviews.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
 
-                    contextview.set("breadcrumbs", breadcrumbsContainer);
+            if (!field.getValue().isObject()) {
+                continue;
+            }
 
-                    logger.debug("Added breadcrumb to contextview '{}': {}",
-                        contextviewKey, pathString);
-                }
+            ArrayNode breadcrumbs =
+                buildBreadcrumbs(field.getKey(), contextviews, parentIndex, FilterRules.UNFILTERED);
+            if (breadcrumbs != null) {
+                ((ObjectNode) field.getValue()).set("breadcrumbs", breadcrumbs);
             }
         }
 
@@ -101,138 +64,291 @@ public class BreadcrumbGenerator {
     }
 
     /**
-     * Generate breadcrumb for a contextview - equivalent to PHP breadcrumb() recursive function
-     * (PHP: lines 170-322)
+     * Build the breadcrumbs node of a contextview as it appears in the output
+     * filtered with the given rules. Links and contextviews removed by the
+     * rules are skipped, so the result matches running {@link ${symbol_pound}addBreadcrumbs}
+     * on the filtered tree, without filtering it.
+     *
+     * @param contextviewKey ContextView key
+     * @param contextviews Contextviews node the index was built from
+     * @param parentIndex Index from {@link ${symbol_pound}buildParentIndex}
+     * @param rules Filter rules of the output
+     * @return Breadcrumbs node, or null if the contextview gets none
      */
-    private List<BreadcrumbEntry> generateBreadcrumb(
+    public ArrayNode buildBreadcrumbs(
             String contextviewKey,
-            ObjectNode allScenarios,
-            int depth
+            ObjectNode contextviews,
+            ParentIndex parentIndex,
+            FilterRules rules
     ) {
-        List<BreadcrumbEntry> breadcrumb = new ArrayList<>();
+        JsonNode contextview = contextviews.get(contextviewKey);
+        List<BreadcrumbEntry> breadcrumb =
+            generateBreadcrumb(contextviewKey, contextviews, parentIndex, rules);
 
-        // Protection against infinite recursion (PHP: lines 172-176)
-        if (depth > MAX_RECURSION_DEPTH) {
-            logger.error("ATTENZIONE: superati i limiti della ricorsione durante " +
-                "la chiamata allo contextview {}!!!", contextviewKey);
-            return breadcrumb;
+        if (breadcrumb.isEmpty()) {
+            return null;
         }
 
-        if (!allScenarios.has(contextviewKey)) {
-            return breadcrumb;
+        String scenarioTitle = contextview.has("title") ?
+            contextview.get("title").asText() : contextviewKey;
+        String scenarioBreadcrumbTitle = contextview.has("breadcrumb") ?
+            contextview.get("breadcrumb").asText() : scenarioTitle;
+
+        // Check if first breadcrumb matches current contextview (PHP: line 391)
+        if (!breadcrumb.get(0).title.equals(scenarioTitle) &&
+            !breadcrumb.get(0).title.equals(scenarioBreadcrumbTitle)) {
+            return null;
         }
 
-        JsonNode contextview = allScenarios.get(contextviewKey);
+        // Build breadcrumb object (PHP: lines 402-412)
+        ArrayNode breadcrumbArray = contextviews.arrayNode();
+        StringBuilder pathString = new StringBuilder();
 
-        if (!contextview.has("title")) {
-            return breadcrumb;
-        }
+        // Reverse breadcrumb (PHP: array_reverse)
+        Collections.reverse(breadcrumb);
 
-        String scenarioTitle = contextview.has("breadcrumb") ?
-            contextview.get("breadcrumb").asText() :
-            contextview.get("title").asText();
-        String scenarioRoute = contextview.has("route") ?
-            contextview.get("route").asText() : null;
+        for (BreadcrumbEntry bc : breadcrumb) {
+            ObjectNode bcNode = contextviews.objectNode();
+            bcNode.put("title", bc.title);
+            if (bc.route != null) {
+                bcNode.put("route", bc.route);
+            }
+            breadcrumbArray.add(bcNode);
 
-        // Initialize breadcrumb with current contextview (PHP: lines 186-190)
-        if (breadcrumb.isEmpty()) {
-            breadcrumb.add(new BreadcrumbEntry(scenarioTitle, scenarioRoute));
+            if (pathString.length() > 0) {
+                pathString.append(" > ");
+            }
+            pathString.append(bc.title);
         }
 
-        // Search for parent contextview (PHP: lines 193-318)
-        String targetScenario = contextviewKey.toLowerCase();
-        boolean parentFound = false;
+        ArrayNode breadcrumbsContainer = contextviews.arrayNode();
+        ObjectNode breadcrumbObject = contextviews.objectNode();
+        breadcrumbObject.set("to_array", breadcrumbArray);
+        breadcrumbObject.put("to_string", pathString.toString());
+        breadcrumbsContainer.add(breadcrumbObject);
 
-        Iterator<Map.Entry<String, JsonNode>> contextviews = allScenarios.fields();
-        while (contextviews.hasNext() && !parentFound) {
-            Map.Entry<String, JsonNode> entry = contextviews.next();
-            String currentScenarioKey = entry.getKey();
-            JsonNode currentScenario = entry.getValue();
+        logger.debug("Breadcrumb of contextview '{}': {}", contextviewKey, pathString);
+        return breadcrumbsContainer;
+    }
+
+    /**
+     * Index every contextview by its candidate parents (PHP: lines 193-318, done once).
+     *
+     * The parent of a contextview is the first contextview, in declaration
+     * order, whose actions-top/actions-row items link to it through
+     * goto-contextview, or through list-contextview when goto-contextview is
+     * "_list". Keys are lower-cased, matching is case-insensitive. All links
+     * are kept in order, so the index of an unfiltered configuration can
+     * serve every role.
+     */
+    public ParentIndex buildParentIndex(ObjectNode contextviews) {
+        Map<String, List<Link>> links = new HashMap<>();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = contextviews.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String parentKey = field.getKey();
+            JsonNode parent = field.getValue();
 
-            if (!currentScenario.has("title") && !currentScenario.has("breadcrumb")) {
+            if (!parent.has("title") && !parent.has("breadcrumb")) {
                 continue;
             }
 
-            // Check actions-top and actions-row (PHP: lines 201-317)
-            String[] actionTypes = {"actions-top", "actions-row"};
+            JsonNode options = parent.get("options");
+            if (options == null) {
+                continue;
+            }
 
-            for (String actionType : actionTypes) {
-                if (parentFound) break;
+            for (String actionType : ACTION_GROUPS) {
+                JsonNode actionGroup = options.get(actionType);
+                if (actionGroup == null || !actionGroup.has("items") ||
+                    !actionGroup.get("items").isArray()) {
+                    continue;
+                }
 
-                if (currentScenario.has("options") &&
-                    currentScenario.get("options").has(actionType)) {
+                for (JsonNode item : actionGroup.get("items")) {
+                    if (!item.has("goto-contextview")) {
+                        continue;
+                    }
 
-                    JsonNode actionGroup = currentScenario.get("options").get(actionType);
+                    Link link = new Link(parentKey, options, actionType, actionGroup, item);
+                    String gotoScenario = item.get("goto-contextview").asText().toLowerCase(Locale.ROOT);
+                    links.computeIfAbsent(gotoScenario, key -> new ArrayList<>()).add(link);
 
-                    if (actionGroup.has("items")) {
-                        ArrayNode items = (ArrayNode) actionGroup.get("items");
+                    // List contextview links (PHP: lines 260-312)
+                    if ("_list".equals(gotoScenario) && item.has("list-contextview") &&
+                        item.get("list-contextview").isArray()) {
+                        for (JsonNode listScenario : item.get("list-contextview")) {
+                            links.computeIfAbsent(listScenario.asText().toLowerCase(Locale.ROOT),
+                                key -> new ArrayList<>()).add(link);
+                        }
+                    }
+                }
+            }
+        }
 
-                        for (JsonNode item : items) {
-                            if (parentFound) break;
+        return new ParentIndex(links);
+    }
 
-                            if (item.has("goto-contextview")) {
-                                String gotoScenario = item.get("goto-contextview").asText();
+    /**
+     * Generate breadcrumb for a contextview - equivalent to PHP breadcrumb() recursive function
+     * (PHP: lines 170-322), walking the parent index instead of recursing.
+     *
+     * Like the PHP version, each level contributes the parent entry and then
+     * the parent's own breadcrumb (which starts with the parent again).
+     * The walk stops when a contextview is reached twice (cycle) or past
+     * MAX_RECURSION_DEPTH levels.
+     */
+    private List<BreadcrumbEntry> generateBreadcrumb(
+            String contextviewKey,
+            ObjectNode allScenarios,
+            ParentIndex parentIndex,
+            FilterRules rules
+    ) {
+        List<BreadcrumbEntry> breadcrumb = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
 
-                                // Direct match (PHP: lines 225-258)
-                                if (gotoScenario.toLowerCase().equals(targetScenario)) {
-                                    String currentTitle = currentScenario.has("breadcrumb") ?
-                                        currentScenario.get("breadcrumb").asText() :
-                                        currentScenario.get("title").asText();
-                                    String currentRoute = currentScenario.has("route") ?
-                                        currentScenario.get("route").asText() : null;
+        String currentKey = contextviewKey;
+        int depth = 0;
 
-                                    breadcrumb.add(new BreadcrumbEntry(currentTitle, currentRoute));
+        while (true) {
+            // Protection against infinite recursion (PHP: lines 172-176)
+            if (depth > MAX_RECURSION_DEPTH) {
+                logger.error("ATTENZIONE: superati i limiti della ricorsione durante " +
+                    "la chiamata allo contextview {}!!!", currentKey);
+                break;
+            }
 
-                                    // Recursive call (PHP: line 250)
-                                    List<BreadcrumbEntry> parentBreadcrumb =
-                                        generateBreadcrumb(currentScenarioKey, allScenarios, depth + 1);
-                                    breadcrumb.addAll(parentBreadcrumb);
+            JsonNode contextview = allScenarios.get(currentKey);
+            if (contextview == null || !isVisible(currentKey, contextview, rules) ||
+                !contextview.has("title")) {
+                break;
+            }
 
-                                    parentFound = true;
-                                }
+            visited.add(currentKey);
+            breadcrumb.add(parentIndex.entryFor(currentKey, contextview));
 
-                                // List contextview match (PHP: lines 260-312)
-                                if ("_list".equals(gotoScenario.toLowerCase()) &&
-                                    item.has("list-contextview")) {
+            // Parent contextview (PHP: lines 193-318)
+            String parentKey = parentIndex.parentOf(currentKey, allScenarios, rules);
+            if (parentKey == null) {
+                break;
+            }
+            if (visited.contains(parentKey)) {
+                logger.warn("Breadcrumb cycle detected: contextview '{}' links back to '{}'",
+                    parentKey, currentKey);
+                break;
+            }
 
-                                    JsonNode listScenarios = item.get("list-contextview");
-                                    if (listScenarios.isArray()) {
-                                        for (JsonNode listScenario : listScenarios) {
-                                            if (listScenario.asText().toLowerCase().equals(targetScenario)) {
-                                                String currentTitle = currentScenario.has("breadcrumb") ?
-                                                    currentScenario.get("breadcrumb").asText() :
-                                                    currentScenario.get("title").asText();
-                                                String currentRoute = currentScenario.has("route") ?
-                                                    currentScenario.get("route").asText() : null;
+            breadcrumb.add(parentIndex.entryFor(parentKey, allScenarios.get(parentKey)));
 
-                                                breadcrumb.add(new BreadcrumbEntry(currentTitle, currentRoute));
+            currentKey = parentKey;
+            depth++;
+        }
 
-                                                List<BreadcrumbEntry> parentBreadcrumb =
-                                                    generateBreadcrumb(currentScenarioKey, allScenarios, depth + 1);
-                                                breadcrumb.addAll(parentBreadcrumb);
+        return breadcrumb;
+    }
 
-                                                parentFound = true;
-                                                break;
-                                            }
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
+    /**
+     * Whether a contextview is kept by the rules
+     */
+    private static boolean isVisible(String contextviewKey, JsonNode contextview, FilterRules rules) {
+        return !contextview.isObject() || rules.keepField(contextviewKey, (ObjectNode) contextview);
+    }
+
+    /**
+     * Parent links of every contextview, plus the breadcrumb entries built
+     * from them. Role-independent: can be shared by every request on the same
+     * configuration.
+     */
+    public static class ParentIndex {
+        private final Map<String, List<Link>> links;
+        private final Map<String, BreadcrumbEntry> entries = new ConcurrentHashMap<>();
+
+        ParentIndex(Map<String, List<Link>> links) {
+            this.links = links;
+        }
+
+        /**
+         * First parent whose link survives the rules
+         */
+        String parentOf(String contextviewKey, ObjectNode allScenarios, FilterRules rules) {
+            List<Link> candidates = links.get(contextviewKey.toLowerCase(Locale.ROOT));
+            if (candidates == null) {
+                return null;
+            }
+            for (Link link : candidates) {
+                if (link.isVisible(allScenarios.get(link.parentKey), rules)) {
+                    return link.parentKey;
                 }
             }
+            return null;
         }
 
-        return breadcrumb;
+        /**
+         * Breadcrumb entry of a contextview (breadcrumb or title, route), built once
+         */
+        BreadcrumbEntry entryFor(String contextviewKey, JsonNode contextview) {
+            return entries.computeIfAbsent(contextviewKey, key -> new BreadcrumbEntry(
+                contextview.has("breadcrumb") ?
+                    contextview.get("breadcrumb").asText() :
+                    contextview.get("title").asText(),
+                contextview.has("route") ?
+                    contextview.get("route").asText() : null
+            ));
+        }
+    }
+
+    /**
+     * goto-contextview / list-contextview link from a parent action item
+     */
+    private static class Link {
+        final String parentKey;
+        final JsonNode options;
+        final String actionType;
+        final JsonNode actionGroup;
+        final JsonNode item;
+
+        Link(String parentKey, JsonNode options, String actionType, JsonNode actionGroup, JsonNode item) {
+            this.parentKey = parentKey;
+            this.options = options;
+            this.actionType = actionType;
+            this.actionGroup = actionGroup;
+            this.item = item;
+        }
+
+        /**
+         * Whether the parent, its options, the action group and the item
+         * are all kept by the rules
+         */
+        boolean isVisible(JsonNode parent, FilterRules rules) {
+            if (!BreadcrumbGenerator.isVisible(parentKey, parent, rules)) {
+                return false;
+            }
+            if (!rules.descend(parentKey)) {
+                return true;
+            }
+            if (options.isObject() && !rules.keepField("options", (ObjectNode) options)) {
+                return false;
+            }
+            if (!rules.descend("options")) {
+                return true;
+            }
+            if (actionGroup.isObject() && !rules.keepField(actionType, (ObjectNode) actionGroup)) {
+                return false;
+            }
+            if (!rules.descend(actionType)) {
+                return true;
+            }
+            return !item.isObject() || rules.keepElement((ObjectNode) item);
+        }
     }
 
     /**
      * Internal breadcrumb entry structure
      */
     private static class BreadcrumbEntry {
-        String title;
-        String route;
+        final String title;
+        final String route;
 
         BreadcrumbEntry(String title, String route) {
             this.title = title;
@@ -0,0 +1,257 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot reload of the contextviews configuration.
+ *
+ * Watches json/ (main.json) and json/forms/ (forms/*.json) under the
+ * contextviews base path and reports changed files to
+ * {@link ContextViewProcessor${symbol_pound}refresh}. Events are debounced (an editor
+ * saving a file usually fires several) and the rebuild runs on a background
+ * thread, so requests keep being served the previous configuration until
+ * the new one is swapped in. While the watcher runs, requests no longer
+ * check the files on disk.
+ *
+ * If json/ is deleted or replaced (a redeploy swapping the directory), the
+ * new directory is watched instead; if there is none, the watcher stops and
+ * requests check the files every contextviews.cache.checkInterval again.
+ *
+ * @author TomEEx Dev Team
+ */
+public class ConfigurationWatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationWatcher.class);
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    private final ContextViewProcessor processor;
+    private final Path jsonDir;
+    private final Path formsDir;
+    private final long debounceMillis;
+
+    // Changes waiting for the debounce delay (guarded by this)
+    private final Set<Path> pending = new HashSet<>();
+    private boolean overflow;
+    private ScheduledFuture<?> scheduled;
+
+    private WatchService watchService;
+    private ScheduledExecutorService refresher;
+    private Thread watchThread;
+
+    /**
+     * @param processor Processor whose cache is kept up to date
+     * @param modulesBasePath Contextviews base path (the directory containing json/)
+     * @param debounceMillis Quiet time after the last change before rebuilding
+     */
+    public ConfigurationWatcher(ContextViewProcessor processor, Path modulesBasePath, long debounceMillis) {
+        this.processor = processor;
+        this.jsonDir = modulesBasePath.resolve("json");
+        this.formsDir = jsonDir.resolve("forms");
+        this.debounceMillis = Math.max(0, debounceMillis);
+    }
+
+    /**
+     * Start watching
+     *
+     * @throws IOException if json/ cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        watchService = jsonDir.getFileSystem().newWatchService();
+        try {
+            register(jsonDir);
+            if (Files.isDirectory(formsDir)) {
+                register(formsDir);
+            }
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "contextview-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watchThread = new Thread(this::watch, "contextview-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+
+        processor.setWatching(true);
+
+        // Catch up with changes made before the directories were registered
+        changed(null);
+
+        logger.info("Watching {} for configuration changes", jsonDir);
+    }
+
+    /**
+     * Stop watching; requests check the files on disk again
+     */
+    @Override
+    public synchronized void close() {
+        if (watchService == null) {
+            return;
+        }
+
+        processor.setWatching(false);
+        watchThread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("Error closing configuration watcher", e);
+        }
+        refresher.shutdownNow();
+        watchService = null;
+
+        logger.info("Stopped watching {}", jsonDir);
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY,
+            StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /**
+     * Watch thread: collect changed files until the watcher is closed
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path dir = (Path) key.watchable();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        changed(null);
+                        continue;
+                    }
+
+                    Path file = dir.resolve((Path) event.context());
+                    if (file.equals(formsDir) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        // forms/ (re)created: watch it and check every file
+                        registerForms();
+                        changed(null);
+                    } else {
+                        changed(file);
+                    }
+                }
+
+                if (!key.reset()) {
+                    if (dir.equals(jsonDir)) {
+                        if (!rewatch()) {
+                            return;
+                        }
+                    } else {
+                        logger.warn("{} is no longer watched", dir);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    /**
+     * json/ is gone (deleted or replaced): watch the directory now at its
+     * path, or stop and let requests check the files on disk
+     *
+     * @return false if the watcher stopped
+     */
+    private boolean rewatch() {
+        if (Files.isDirectory(jsonDir)) {
+            try {
+                register(jsonDir);
+                if (Files.isDirectory(formsDir)) {
+                    register(formsDir);
+                }
+                // Files written before the new directory was registered
+                changed(null);
+                logger.info("{} was replaced, watching the new directory", jsonDir);
+                return true;
+            } catch (IOException e) {
+                logger.warn("Cannot watch {}", jsonDir, e);
+            }
+        }
+
+        logger.warn("{} is no longer watched, checking the files on requests", jsonDir);
+        close();
+        // close() interrupts this thread, which would break file reads
+        Thread.interrupted();
+        // Anything changed since the last event is picked up now
+        processor.refreshAll();
+        return false;
+    }
+
+    private void registerForms() {
+        try {
+            register(formsDir);
+        } catch (IOException e) {
+            logger.warn("Cannot watch {}", formsDir, e);
+        }
+    }
+
+    /**
+     * Record a change and (re)start the debounce delay
+     *
+     * @param file Changed file, or null when every file must be checked
+     */
+    private synchronized void changed(Path file) {
+        if (watchService == null) {
+            return;
+        }
+
+        if (file == null) {
+            overflow = true;
+        } else {
+            pending.add(file);
+        }
+
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        scheduled = refresher.schedule(this::refresh, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reload thread: rebuild what the collected changes affect
+     */
+    private void refresh() {
+        Set<Path> files;
+        boolean everything;
+        synchronized (this) {
+            files = new HashSet<>(pending);
+            everything = overflow;
+            pending.clear();
+            overflow = false;
+        }
+
+        if (everything) {
+            processor.refreshAll();
+        } else if (!files.isEmpty()) {
+            logger.debug("Configuration files changed: {}", files);
+            processor.refresh(files);
+        }
+    }
+}
@@ -4,7 +4,9 @@
 package ${package}.contextview.processor;
 
 import ${package}.contextview.core.ContextView;
+import ${package}.contextview.core.ContextViewMapper;
 import ${package}.contextview.core.ContextViewOptions;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -13,10 +15,17 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * ScenarioProcessor - Core processor for JSON-Driven ContextView Architecture.
@@ -30,18 +39,51 @@ import java.util.*;
  *    - Apply role-based authorization
  *    - Generate breadcrumb navigation
  *
+ * Steps 1-2 do not depend on the request, so their result (the compiled
+ * configuration) is cached per JSON path and rebuilt only when main.json or
+ * one of the referenced form files changes on disk (mtime/size check).
+ * Form files are loaded and transformed in parallel and kept in a
+ * {@link SchemaStore}, so an unchanged form is not re-read when main.json or
+ * another form changes, and contextviews using the same form, mode and
+ * component share one transformed schema.
+ *
+ * Instead of checking the files on requests, the cache can be kept up to
+ * date by a {@link ConfigurationWatcher}: changed files are reported to
+ * {@link ${symbol_pound}refresh}, which rebuilds only the affected entries in the
+ * background and swaps them in.
+ *
+ * Single contextviews can also be processed on their own
+ * ({@link ${symbol_pound}processContextView}): only the requested contextview and its
+ * form are compiled, and breadcrumbs come from an index of main.json.
+ *
  * @author TomEEx Dev Team
  * @version 1.0.0
  */
 public class ContextViewProcessor {
 
     private static final Logger logger = LoggerFactory.getLogger(ContextViewProcessor.class);
+    private static final long DEFAULT_CHECK_INTERVAL_MILLIS = 1000;
+    private static final int MAX_FILTERED_VIEWS = 64;
+
     private final ObjectMapper objectMapper;
     private final Path modulesBasePath;
 
-#if($enableRoleAuthorization == "true")
+    // Compiled (role-independent) configuration cache
+    private final Map<String, CompiledConfiguration> compiledCache = new ConcurrentHashMap<>();
+    private final Map<String, ModuleIndex> moduleCache = new ConcurrentHashMap<>();
+    private final Object compileLock = new Object();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong cacheReloads = new AtomicLong();
+    private volatile long checkIntervalMillis = DEFAULT_CHECK_INTERVAL_MILLIS;
+    private volatile boolean roleSnapshots = true;
+    private volatile boolean watching;
+
+    // Pool for loading/transforming schema files (null = calling thread)
+    private volatile ForkJoinPool schemaPool;
+
+    private final SchemaStore schemaStore;
     private final RoleAuthorizationFilter roleFilter;
-#end
 #if($enableBreadcrumbs == "true")
     private final BreadcrumbGenerator breadcrumbGenerator;
 #end
@@ -51,10 +93,10 @@ public class ContextViewProcessor {
 
     public ContextViewProcessor(Path modulesBasePath) {
         this.modulesBasePath = modulesBasePath;
-        this.objectMapper = new ObjectMapper();
-#if($enableRoleAuthorization == "true")
+        this.objectMapper = ContextViewMapper.get();
+        this.schemaStore = new SchemaStore(objectMapper);
         this.roleFilter = new RoleAuthorizationFilter();
-#end
+        this.schemaPool = new ForkJoinPool();
 #if($enableBreadcrumbs == "true")
         this.breadcrumbGenerator = new BreadcrumbGenerator();
 #end
@@ -70,7 +112,7 @@ public class ContextViewProcessor {
      * @param activeRole Current user role
      * @param validationTerms Terms validation status
      * @param maintenanceMode System maintenance flag
-     * @return Processed configuration as JsonNode
+     * @return Processed configuration as JsonNode (shared, must not be modified)
      */
     public JsonNode processConfiguration(
             String jsonPath,
@@ -79,239 +121,760 @@ public class ContextViewProcessor {
             boolean maintenanceMode
     ) throws IOException {
 
-        logger.info("Processing configuration: {}", jsonPath);
+        logger.debug("Processing configuration: {}", jsonPath);
+
+        // 1-2. Load JSON file and process contextviews (cached, role-independent)
+        CompiledConfiguration compiled = getCompiledConfiguration(jsonPath);
+        JsonNode jsonData = compiled.getData();
+
+        // 3. Handle validation terms (PHP: lines 368-371)
+        String effectiveRole = effectiveRole(jsonData, activeRole, validationTerms);
+
+        if (roleSnapshots) {
+            // 4-5. Filtered and breadcrumbed once per (role, maintenanceMode)
+            return compiled.getSnapshots().get(effectiveRole, maintenanceMode);
+        }
+
+        // 4. Apply role-based authorization (PHP: fixRoleAuthorization)
+        jsonData = roleFilter.filterByRole(jsonData, effectiveRole, maintenanceMode);
+
+        logger.debug("Configuration processed successfully");
+        return finishConfiguration(jsonData);
+    }
+
+    /**
+     * Streaming engine: write the filtered configuration of a compiled module
+     * straight to a generator, without building a filtered tree. The output
+     * is byte-identical to serializing {@link ${symbol_pound}processConfiguration}.
+     *
+     * @param compiled Compiled configuration from {@link ${symbol_pound}getCompiledConfiguration}
+     * @param activeRole Current user role
+     * @param validationTerms Terms validation status
+     * @param maintenanceMode System maintenance flag
+     * @param generator Output generator
+     */
+    public void writeConfiguration(
+            CompiledConfiguration compiled,
+            String activeRole,
+            boolean validationTerms,
+            boolean maintenanceMode,
+            JsonGenerator generator
+    ) throws IOException {
+        streamingWriter(compiled, activeRole, validationTerms, maintenanceMode, generator)
+            .writeConfiguration(compiled.getData());
+    }
+
+    /**
+     * Streaming engine: write the filtered "contextviews" node
+     *
+     * @return false if the configuration has no (visible) contextviews
+     */
+    public boolean writeContextviews(
+            CompiledConfiguration compiled,
+            String activeRole,
+            boolean validationTerms,
+            boolean maintenanceMode,
+            JsonGenerator generator
+    ) throws IOException {
+        return streamingWriter(compiled, activeRole, validationTerms, maintenanceMode, generator)
+            .writeContextviews(compiled.getData());
+    }
+
+    /**
+     * Streaming engine: write a single filtered contextview
+     *
+     * @return false if the contextview does not exist or is not visible
+     */
+    public boolean writeContextview(
+            CompiledConfiguration compiled,
+            String contextviewKey,
+            String activeRole,
+            boolean validationTerms,
+            boolean maintenanceMode,
+            JsonGenerator generator
+    ) throws IOException {
+        return streamingWriter(compiled, activeRole, validationTerms, maintenanceMode, generator)
+            .writeContextview(compiled.getData(), contextviewKey);
+    }
+
+    /**
+     * Process a single contextview - same result as
+     * processConfiguration(...).get("contextviews").get(contextviewKey), but
+     * only the requested contextview is compiled (with its own form) and
+     * filtered, and its breadcrumbs are resolved by walking its ancestors in
+     * the parent index of main.json.
+     *
+     * @param jsonPath Path to module JSON
+     * @param contextviewKey ContextView key
+     * @param activeRole Current user role
+     * @param validationTerms Terms validation status
+     * @param maintenanceMode System maintenance flag
+     * @return Processed contextview (shared, must not be modified), or null
+     *         if it does not exist or is not visible
+     */
+    public JsonNode processContextView(
+            String jsonPath,
+            String contextviewKey,
+            String activeRole,
+            boolean validationTerms,
+            boolean maintenanceMode
+    ) throws IOException {
+
+        CompiledContextView view = getCompiledContextView(jsonPath, contextviewKey);
+        if (view == null) {
+            return null;
+        }
+
+        String effectiveRole = effectiveRole(view.module.data, activeRole, validationTerms);
+        if (roleSnapshots) {
+            return view.getFiltered(effectiveRole, maintenanceMode);
+        }
+        return filterContextView(view, effectiveRole, maintenanceMode);
+    }
+
+    /**
+     * Streaming engine: write a single contextview compiled on its own
+     *
+     * @return false if the contextview is not visible
+     */
+    public boolean writeContextview(
+            CompiledContextView view,
+            String activeRole,
+            boolean validationTerms,
+            boolean maintenanceMode,
+            JsonGenerator generator
+    ) throws IOException {
+        ModuleIndex module = view.module;
+        String effectiveRole = effectiveRole(module.data, activeRole, validationTerms);
+        FilterRules rules = roleFilter.rules(effectiveRole, maintenanceMode);
+
+        StreamingConfigurationWriter.BreadcrumbSource breadcrumbs = null;
+#if($enableBreadcrumbs == "true")
+        breadcrumbs = contextviewKey -> breadcrumbGenerator.buildBreadcrumbs(
+            contextviewKey, module.getContextviews(), module.getParentIndex(), rules);
+#end
+        return new StreamingConfigurationWriter(rules, breadcrumbs, generator)
+            .writeContextview(module.getContextviews(), view.contextviewKey, view.contextview);
+    }
+
+    /**
+     * Get a single contextview compiled on its own, compiling it on first use
+     * and recompiling it when its form or main.json has changed.
+     *
+     * @return The compiled contextview, or null if main.json does not declare it
+     */
+    public CompiledContextView getCompiledContextView(String jsonPath, String contextviewKey) throws IOException {
+        ModuleIndex module = getModuleIndex(jsonPath);
+        ObjectNode contextviews = module.getContextviews();
+        if (contextviews == null || !contextviews.has(contextviewKey)) {
+            return null;
+        }
+
+        CompiledContextView view = module.views.get(contextviewKey);
+        if (view != null && !isStale(view.sources)) {
+            return view;
+        }
+
+        // Rebuild unless another thread already did
+        return module.views.compute(contextviewKey, (key, current) ->
+            current != null && current != view ? current : compileContextView(module, key));
+    }
+
+    /**
+     * Get the raw main.json of a module, reloading it when it has changed
+     */
+    private ModuleIndex getModuleIndex(String jsonPath) throws IOException {
+        return getModuleIndex(jsonPath, false);
+    }
+
+    /**
+     * @param verify Check main.json now rather than once per check interval
+     */
+    private ModuleIndex getModuleIndex(String jsonPath, boolean verify) throws IOException {
+        ModuleIndex module = moduleCache.get(jsonPath);
+        if (module != null && !isStale(module.sources, verify)) {
+            return module;
+        }
 
-        // 1. Load JSON file (PHP: file_get_contents + json_decode)
+        synchronized (compileLock) {
+            ModuleIndex current = moduleCache.get(jsonPath);
+            if (current != null && current != module && !isStale(current.sources, verify)) {
+                return current;
+            }
+
+            ModuleIndex rebuilt = loadModuleIndex(jsonPath);
+            moduleCache.put(jsonPath, rebuilt);
+            return rebuilt;
+        }
+    }
+
+    private ModuleIndex loadModuleIndex(String jsonPath) throws IOException {
         Path fullPath = modulesBasePath.resolve(jsonPath);
-        JsonNode jsonData = loadJsonFile(fullPath);
+        Map<Path, FileStamp> sources = new LinkedHashMap<>();
+        sources.put(fullPath, FileStamp.of(fullPath));
 
-        // 2. Process contextviews if present
-        if (jsonData.has("contextviews")) {
-            JsonNode contextviewsNode = jsonData.get("contextviews");
-            processContextViews((ObjectNode) jsonData, contextviewsNode, jsonPath);
+        return new ModuleIndex(jsonPath, loadJsonFile(fullPath), new SourceFiles(sources));
+    }
+
+    /**
+     * Compile one contextview: copy it (and its options) shallowly and
+     * inline its schema, leaving main.json untouched
+     */
+    private CompiledContextView compileContextView(ModuleIndex module, String contextviewKey) {
+        logger.debug("Compiling contextview {} of {}", contextviewKey, module.jsonPath);
+
+        JsonNode contextview = copyForInlining(module.getContextviews().get(contextviewKey));
+
+        Map<Path, FileStamp> sources = new LinkedHashMap<>();
+        Path formsDir = modulesBasePath.resolve(module.jsonPath).getParent().resolve("forms");
+
+        SchemaReference reference = prepareContextView(contextviewKey, contextview, formsDir, sources, Runnable::run);
+        if (reference != null) {
+            inlineSchema((ObjectNode) contextview.get("options"), reference);
         }
 
-        // 3. Handle validation terms (PHP: lines 368-371)
-        String effectiveRole = activeRole;
+        return new CompiledContextView(module, contextviewKey, contextview, new SourceFiles(sources));
+    }
+
+    /**
+     * Filter a compiled contextview for a role and add its breadcrumbs
+     */
+    private JsonNode filterContextView(CompiledContextView view, String role, boolean maintenanceMode) {
+        ObjectNode contextviews = view.module.getContextviews();
+        JsonNode filtered = roleFilter.filterContextview(
+            contextviews, view.contextviewKey, view.contextview, role, maintenanceMode);
+#if($enableBreadcrumbs == "true")
+
+        // Breadcrumbs of the contextview as in the filtered configuration (PHP: lines 377-418)
+        if (filtered instanceof ObjectNode) {
+            JsonNode breadcrumbs = breadcrumbGenerator.buildBreadcrumbs(view.contextviewKey, contextviews,
+                view.module.getParentIndex(), roleFilter.rules(role, maintenanceMode));
+            if (breadcrumbs != null) {
+                ((ObjectNode) filtered).set("breadcrumbs", breadcrumbs);
+            }
+        }
+#end
+        return filtered;
+    }
+
+    private StreamingConfigurationWriter streamingWriter(
+            CompiledConfiguration compiled,
+            String activeRole,
+            boolean validationTerms,
+            boolean maintenanceMode,
+            JsonGenerator generator
+    ) {
+        String effectiveRole = effectiveRole(compiled.getData(), activeRole, validationTerms);
+        FilterRules rules = roleFilter.rules(effectiveRole, maintenanceMode);
+
+        StreamingConfigurationWriter.BreadcrumbSource breadcrumbs = null;
+#if($enableBreadcrumbs == "true")
+        JsonNode contextviews = compiled.getData().get("contextviews");
+        if (contextviews instanceof ObjectNode) {
+            BreadcrumbGenerator.ParentIndex parentIndex = compiled.getParentIndex();
+            breadcrumbs = contextviewKey -> breadcrumbGenerator.buildBreadcrumbs(
+                contextviewKey, (ObjectNode) contextviews, parentIndex, rules);
+        }
+#end
+        return new StreamingConfigurationWriter(rules, breadcrumbs, generator);
+    }
+
+    /**
+     * Role used for filtering: "@" for users who have not accepted required
+     * service terms (PHP: lines 368-371)
+     */
+    private String effectiveRole(JsonNode jsonData, String activeRole, boolean validationTerms) {
         if (activeRole != null &&
             jsonData.has("options") &&
             jsonData.get("options").has("serviceTermsRequired") &&
             jsonData.get("options").get("serviceTermsRequired").asBoolean() &&
             !validationTerms) {
-            effectiveRole = "@"; // Unvalidated user role
+            return "@"; // Unvalidated user role
         }
+        return activeRole;
+    }
 
-#if($enableRoleAuthorization == "true")
-        // 4. Apply role-based authorization (PHP: fixRoleAuthorization)
-        jsonData = roleFilter.filterByRole(jsonData, effectiveRole, maintenanceMode);
-#end
-
+    /**
+     * Steps applied to a role-filtered copy of the configuration
+     */
+    private JsonNode finishConfiguration(JsonNode jsonData) {
 #if($enableBreadcrumbs == "true")
         // 5. Generate breadcrumbs (PHP: lines 377-418)
         if (jsonData.has("contextviews")) {
             jsonData = breadcrumbGenerator.addBreadcrumbs((ObjectNode) jsonData);
         }
 #end
-
-        logger.info("Configuration processed successfully");
         return jsonData;
     }
 
     /**
-     * Process all contextviews - equivalent to PHP foreach loop (lines 332-364)
+     * Get the compiled configuration for a module JSON, compiling it on first
+     * use and recompiling it when one of its source files has changed.
+     * The result identifies the configuration version for the write* methods.
      */
-    private void processContextViews(ObjectNode jsonData, JsonNode contextviewsNode, String modulePath) {
+    public CompiledConfiguration getCompiledConfiguration(String jsonPath) throws IOException {
+        CompiledConfiguration compiled = compiledCache.get(jsonPath);
+        if (compiled != null && !isStale(compiled.sources)) {
+            cacheHits.incrementAndGet();
+            return compiled;
+        }
 
-        Iterator<Map.Entry<String, JsonNode>> contextviews = contextviewsNode.fields();
+        synchronized (compileLock) {
+            // Another thread may have rebuilt it while we were waiting
+            CompiledConfiguration current = compiledCache.get(jsonPath);
+            if (current != null && current != compiled && !isStale(current.sources)) {
+                cacheHits.incrementAndGet();
+                return current;
+            }
 
-        while (contextviews.hasNext()) {
-            Map.Entry<String, JsonNode> entry = contextviews.next();
-            String contextviewKey = entry.getKey();
-            JsonNode contextview = entry.getValue();
+            cacheMisses.incrementAndGet();
+            if (current != null) {
+                cacheReloads.incrementAndGet();
+                logger.info("Configuration {} changed on disk, recompiling", jsonPath);
+            }
 
-            logger.debug("Processing contextview: {}", contextviewKey);
+            CompiledConfiguration rebuilt = compileConfiguration(getModuleIndex(jsonPath, true));
+            rebuilt.prepare();
+            compiledCache.put(jsonPath, rebuilt);
+            return rebuilt;
+        }
+    }
 
-            if (contextview.has("options")) {
-                JsonNode options = contextview.get("options");
+    /**
+     * Inline/transform every contextview schema of a module JSON into a copy
+     * of it (main.json itself is left untouched).
+     * The result does not depend on role or maintenance mode.
+     */
+    private CompiledConfiguration compileConfiguration(ModuleIndex module) {
+        logger.info("Compiling configuration: {}", module.jsonPath);
 
-                // Process schema if present (PHP: lines 337-361)
-                if (options.has("schema")) {
-                    String schemaName = options.get("schema").asText();
-                    String schemaMode = options.has("schemaMode") ?
-                        options.get("schemaMode").asText() : "";
-                    String component = contextview.has("component") ?
-                        contextview.get("component").asText() : "";
+        // 1. JSON file (PHP: file_get_contents + json_decode), loaded by the module index
+        Map<Path, FileStamp> sources = new LinkedHashMap<>(module.sources.stamps);
+        Map<Path, Set<String>> formUsers = new HashMap<>();
+        JsonNode jsonData = module.data;
 
-                    processSchema(
-                        (ObjectNode) jsonData,
-                        contextviewKey,
-                        schemaName,
-                        schemaMode,
-                        component,
-                        modulePath
-                    );
-                }
+        // 2. Process contextviews if present
+        ObjectNode contextviews = module.getContextviews();
+        if (contextviews != null) {
+            ObjectNode compiledContextviews = SchemaStore.shallowCopy(contextviews);
+            ObjectNode compiledData = SchemaStore.shallowCopy((ObjectNode) jsonData);
+            compiledData.set("contextviews", compiledContextviews);
+            jsonData = compiledData;
 
-#if($enableDynamicEnums == "true")
-                // Process dynamic select fields (PHP: selectFields - line 336)
-                processDynamicFields((ObjectNode) options);
-#end
+            List<SchemaReference> references = processContextViews(
+                compiledContextviews, contextviews, keysOf(contextviews), module.jsonPath, sources);
+            for (SchemaReference reference : references) {
+                formUsers.computeIfAbsent(reference.schemaPath, path -> new LinkedHashSet<>())
+                    .add(reference.contextviewKey);
             }
         }
+
+        return new CompiledConfiguration(module, jsonData, new SourceFiles(sources), formUsers);
     }
 
     /**
-     * Load and process schema file - equivalent to PHP lines 348-359
+     * Copy of a compiled configuration where only the given contextviews are
+     * compiled again (their forms changed, main.json did not)
      */
-    private void processSchema(
-            ObjectNode jsonData,
-            String contextviewKey,
-            String schemaName,
-            String schemaMode,
-            String component,
-            String modulePath
+    private CompiledConfiguration recompileContextViews(
+            CompiledConfiguration previous,
+            Set<String> contextviewKeys,
+            Set<Path> changedForms
     ) {
-        try {
-            // Build schema path (PHP: lines 347-348)
-            Path moduleDir = modulesBasePath.resolve(modulePath).getParent();
-            Path schemaPath = moduleDir.resolve("forms").resolve(schemaName + ".json");
+        logger.info("Recompiling contextviews {} of {}", contextviewKeys, previous.module.jsonPath);
 
-            if (Files.exists(schemaPath)) {
-                // Load schema (PHP: file_get_contents + json_decode)
-                JsonNode schemaJson = loadJsonFile(schemaPath);
+        Map<Path, FileStamp> sources = new LinkedHashMap<>(previous.sources.stamps);
+        sources.keySet().removeAll(changedForms);
 
-                // Apply transformations (PHP: addAngularJSONClasses)
-                schemaJson = applySchemaTransformations(schemaJson, schemaMode, component);
+        ObjectNode compiledContextviews = SchemaStore.shallowCopy((ObjectNode) previous.data.get("contextviews"));
+        ObjectNode compiledData = SchemaStore.shallowCopy((ObjectNode) previous.data);
+        compiledData.set("contextviews", compiledContextviews);
 
-                // Inline schema into contextview (PHP: line 354)
-                ObjectNode contextviewOptions = (ObjectNode) jsonData
-                    .get("contextviews")
-                    .get(contextviewKey)
-                    .get("options");
-                contextviewOptions.set("schema", schemaJson);
+        processContextViews(compiledContextviews, previous.module.getContextviews(), contextviewKeys,
+            previous.module.jsonPath, sources);
 
-                logger.debug("Schema '{}' loaded and processed for contextview '{}'",
-                    schemaName, contextviewKey);
+        return new CompiledConfiguration(previous.module, compiledData, new SourceFiles(sources), previous.formUsers);
+    }
 
-            } else {
-                // Schema not found - set error message (PHP: lines 356-358)
-                ObjectNode contextviewOptions = (ObjectNode) jsonData
-                    .get("contextviews")
-                    .get(contextviewKey)
-                    .get("options");
-                contextviewOptions.putNull("schema");
-                contextviewOptions.put("schemaMessage",
-                    "Lo schema di configurazione '" + schemaName +
-                    "' non esiste o contiene degli errori, controllare i file di configurazione");
+    /**
+     * Check whether any source file of a cached entry has changed.
+     * Files are checked at most once per check interval.
+     */
+    private boolean isStale(SourceFiles files) {
+        return isStale(files, false);
+    }
 
-                logger.warn("Schema file not found: {}", schemaPath);
+    /**
+     * @param verify Ignore the check interval
+     */
+    private boolean isStale(SourceFiles files, boolean verify) {
+        if (watching) {
+            // Kept up to date by refresh()
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        if (!verify && now - files.lastChecked < checkIntervalMillis) {
+            return false;
+        }
+        files.lastChecked = now;
+
+        for (Map.Entry<Path, FileStamp> source : files.stamps.entrySet()) {
+            if (!source.getValue().equals(FileStamp.of(source.getKey()))) {
+                return true;
             }
+        }
+        return false;
+    }
 
-        } catch (IOException e) {
-            logger.error("Error processing schema '{}' for contextview '{}'",
-                schemaName, contextviewKey, e);
+    /**
+     * Source files (out of the given ones) whose stamp differs from the one
+     * recorded for a cached entry
+     *
+     * @param candidates Files to check, or null for all of them
+     */
+    private static Set<Path> modifiedSources(SourceFiles files, Set<Path> candidates) {
+        Set<Path> modified = new HashSet<>();
+        for (Map.Entry<Path, FileStamp> source : files.stamps.entrySet()) {
+            if ((candidates == null || candidates.contains(source.getKey())) &&
+                !source.getValue().equals(FileStamp.of(source.getKey()))) {
+                modified.add(source.getKey());
+            }
         }
+        return modified;
     }
 
     /**
-     * Apply schema transformations - equivalent to PHP addAngularJSONClasses()
+     * Rebuild the cached entries that depend on changed files, replacing each
+     * one atomically: requests keep being served the previous version while
+     * the new one is built. A changed form recompiles only the contextviews
+     * that reference it; a changed main.json recompiles the module.
+     *
+     * Meant to be called off the request thread (see {@link ConfigurationWatcher}).
+     *
+     * @param changedFiles Files reported as changed; files that are not
+     *        sources of a cached entry, or whose stamp did not change, are ignored
      */
-    private JsonNode applySchemaTransformations(
-            JsonNode schemaJson,
-            String mode,
-            String component
-    ) {
-        ObjectNode mutableSchema = schemaJson.deepCopy();
+    public void refresh(Collection<Path> changedFiles) {
+        refreshSources(new HashSet<>(changedFiles));
+    }
 
-#if($enableCustomForm == "true")
-        // For custom-form component (PHP: lines 128-134)
-        if ("custom-form".equals(component)) {
-            // Find conditional validations
-            // Insert condition validations
-            // Insert checkbox arrays
-            mutableSchema = prepareJsonSchema(mutableSchema, mode);
+    /**
+     * Rebuild every cached entry whose source files have changed
+     */
+    public void refreshAll() {
+        refreshSources(null);
+    }
+
+    private void refreshSources(Set<Path> candidates) {
+        synchronized (compileLock) {
+            for (String jsonPath : new ArrayList<>(moduleCache.keySet())) {
+                try {
+                    refreshModule(jsonPath, candidates);
+                } catch (IOException | RuntimeException e) {
+                    // Keep serving the last good version until the files are fixed
+                    logger.error("Cannot reload configuration {}", jsonPath, e);
+                }
+            }
         }
-#end
+    }
 
-#if($enableCustomGrid == "true" || $enableCustomForm == "true")
-        // For custom-grid or custom-form (PHP: lines 136-138)
-        if ("custom-grid".equals(component) || "custom-form".equals(component)) {
-            mutableSchema = searchFields(mutableSchema);
+    private void refreshModule(String jsonPath, Set<Path> candidates) throws IOException {
+        ModuleIndex module = moduleCache.get(jsonPath);
+        if (module == null) {
+            return;
         }
-#end
+        CompiledConfiguration compiled = compiledCache.get(jsonPath);
+
+        if (!modifiedSources(module.sources, candidates).isEmpty()) {
+            logger.info("Configuration {} changed on disk, reloading", jsonPath);
+
+            ModuleIndex reloaded = loadModuleIndex(jsonPath);
+            ObjectNode contextviews = reloaded.getContextviews();
+            for (String contextviewKey : module.views.keySet()) {
+                if (contextviews != null && contextviews.has(contextviewKey)) {
+                    reloaded.views.put(contextviewKey, compileContextView(reloaded, contextviewKey));
+                }
+            }
+
+            CompiledConfiguration rebuilt = null;
+            if (compiled != null) {
+                rebuilt = compileConfiguration(reloaded);
+                rebuilt.prepare();
+            }
+
+            moduleCache.put(jsonPath, reloaded);
+            if (rebuilt != null) {
+                compiledCache.put(jsonPath, rebuilt);
+                cacheReloads.incrementAndGet();
+            }
+            return;
+        }
+
+        if (compiled != null) {
+            Set<Path> changedForms = modifiedSources(compiled.sources, candidates);
+            if (!changedForms.isEmpty()) {
+                CompiledConfiguration rebuilt;
+                if (compiled.module != module) {
+                    // Compiled from an older main.json
+                    rebuilt = compileConfiguration(module);
+                } else {
+                    Set<String> contextviewKeys = new LinkedHashSet<>();
+                    for (Path form : changedForms) {
+                        contextviewKeys.addAll(compiled.formUsers.getOrDefault(form, Collections.emptySet()));
+                    }
+                    rebuilt = recompileContextViews(compiled, contextviewKeys, changedForms);
+                }
+                rebuilt.prepare();
+                compiledCache.put(jsonPath, rebuilt);
+                cacheReloads.incrementAndGet();
+            }
+        }
+
+        for (CompiledContextView view : new ArrayList<>(module.views.values())) {
+            if (!modifiedSources(view.sources, candidates).isEmpty()) {
+                module.views.put(view.contextviewKey, compileContextView(module, view.contextviewKey));
+            }
+        }
+    }
+
+    /**
+     * Drop every compiled configuration; the next request recompiles from disk
+     */
+    public void invalidateCache() {
+        compiledCache.clear();
+        moduleCache.clear();
+        schemaStore.clear();
+        logger.info("ContextView configuration cache invalidated");
+    }
+
+    /**
+     * Set how often (in milliseconds) source files are checked for changes.
+     * Zero checks on every request.
+     */
+    public void setCheckIntervalMillis(long checkIntervalMillis) {
+        this.checkIntervalMillis = Math.max(0, checkIntervalMillis);
+    }
+
+    /**
+     * Enable or disable precomputed per-role snapshots. When disabled every
+     * request filters and breadcrumbs its own copy of the configuration.
+     */
+    public void setRoleSnapshots(boolean roleSnapshots) {
+        this.roleSnapshots = roleSnapshots;
+    }
 
-        return mutableSchema;
+    /**
+     * While a watcher keeps the cache up to date through {@link ${symbol_pound}refresh},
+     * requests do not check source files
+     */
+    void setWatching(boolean watching) {
+        this.watching = watching;
+    }
+
+    /**
+     * Set how many schema files are loaded and transformed in parallel when
+     * a configuration is compiled. One (or less) uses the calling thread.
+     */
+    public void setSchemaParallelism(int parallelism) {
+        ForkJoinPool previous = schemaPool;
+        schemaPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
     }
 
     /**
-     * Prepare JSON schema based on mode - equivalent to PHP prepareJsonSchema()
+     * Release the schema pool threads
      */
-    private ObjectNode prepareJsonSchema(ObjectNode schemaJson, String mode) {
+    public void shutdown() {
+        setSchemaParallelism(1);
+    }
 
-        if (schemaJson.has("schema")) {
-            ObjectNode schema = (ObjectNode) schemaJson.get("schema");
-            Iterator<Map.Entry<String, JsonNode>> fields = schema.fields();
+    /**
+     * Get cache hit/miss/reload counters
+     */
+    public CacheStatistics getCacheStatistics() {
+        return new CacheStatistics(
+            cacheHits.get(),
+            cacheMisses.get(),
+            cacheReloads.get(),
+            compiledCache.size(),
+            schemaStore.getLoadCount()
+        );
+    }
 
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> field = fields.next();
-                String fieldKey = field.getKey();
-                ObjectNode fieldValue = (ObjectNode) field.getValue();
+    /**
+     * Process contextviews - equivalent to PHP foreach loop (lines 332-364)
+     *
+     * Schema files are loaded and transformed in parallel on the schema pool
+     * through the schema store (each distinct file is read once, each
+     * (file, mode, component) variant built once), then inlined in
+     * declaration order, so the result does not depend on completion order.
+     *
+     * @param target Copy of the contextviews node receiving the compiled contextviews
+     * @param contextviews Raw contextviews node of main.json (not modified)
+     * @param contextviewKeys Contextviews to process
+     * @return The schemas referenced by the processed contextviews
+     */
+    private List<SchemaReference> processContextViews(
+            ObjectNode target,
+            ObjectNode contextviews,
+            Collection<String> contextviewKeys,
+            String modulePath,
+            Map<Path, FileStamp> sources
+    ) {
 
-                // Add CSS class for field (PHP: lines 534-535)
-                String existingClass = fieldValue.has("fieldHtmlClass") ?
-                    fieldValue.get("fieldHtmlClass").asText() + " " : "";
-                fieldValue.put("fieldHtmlClass", existingClass + fieldKey + "_olof");
+        Path formsDir = modulesBasePath.resolve(modulePath).getParent().resolve("forms");
+        Executor executor = schemaExecutor();
 
-                // Handle readOnly based on mode (PHP: lines 537-543)
-                if ("update".equals(mode) &&
-                    fieldValue.has("readOnly_for_update") &&
-                    fieldValue.get("readOnly_for_update").asBoolean()) {
-                    fieldValue.put("readOnly", true);
-                }
+        List<SchemaReference> references = new ArrayList<>();
 
-                if ("insert".equals(mode) &&
-                    fieldValue.has("readOnly_for_insert") &&
-                    fieldValue.get("readOnly_for_insert").asBoolean()) {
-                    fieldValue.put("readOnly", true);
-                }
+        for (String contextviewKey : contextviewKeys) {
+            JsonNode contextview = copyForInlining(contextviews.get(contextviewKey));
+            target.set(contextviewKey, contextview);
+
+            SchemaReference reference =
+                prepareContextView(contextviewKey, contextview, formsDir, sources, executor);
+            if (reference != null) {
+                references.add(reference);
             }
         }
 
-        return schemaJson;
+        for (SchemaReference reference : references) {
+            inlineSchema((ObjectNode) reference.contextview.get("options"), reference);
+        }
+        return references;
     }
 
     /**
-     * Process dynamic fields (enums, selects) - equivalent to PHP searchFields()
+     * Shallow copy of a contextview and its options when it has a schema to
+     * inline, the contextview itself otherwise
      */
-    private ObjectNode searchFields(ObjectNode node) {
-        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+    private static JsonNode copyForInlining(JsonNode contextview) {
+        if (!contextview.has("options") || !contextview.get("options").has("schema")) {
+            return contextview;
+        }
+        ObjectNode copy = SchemaStore.shallowCopy((ObjectNode) contextview);
+        copy.set("options", SchemaStore.shallowCopy((ObjectNode) contextview.get("options")));
+        return copy;
+    }
 
-        while (fields.hasNext()) {
-            Map.Entry<String, JsonNode> entry = fields.next();
-            String key = entry.getKey();
-            JsonNode value = entry.getValue();
+    private static List<String> keysOf(ObjectNode node) {
+        List<String> keys = new ArrayList<>(node.size());
+        node.fieldNames().forEachRemaining(keys::add);
+        return keys;
+    }
 
-            // Handle enum_function (PHP: lines 598-603)
-            if ("enum_function".equals(key) && value.isTextual()) {
-                String functionName = value.asText();
-                // TODO: Implement dynamic function execution
-                // For now, log the function to be called
-                logger.debug("Dynamic enum function to execute: {}", functionName);
-            }
+    /**
+     * Process one contextview: start loading its schema (if any) and process
+     * its dynamic fields
+     *
+     * @return The pending schema, or null if the contextview has none
+     */
+    private SchemaReference prepareContextView(
+            String contextviewKey,
+            JsonNode contextview,
+            Path formsDir,
+            Map<Path, FileStamp> sources,
+            Executor executor
+    ) {
+        logger.debug("Processing contextview: {}", contextviewKey);
+
+        if (!contextview.has("options")) {
+            return null;
+        }
+
+        JsonNode options = contextview.get("options");
+        SchemaReference reference = null;
+
+        // Process schema if present (PHP: lines 337-361)
+        if (options.has("schema")) {
+            String schemaName = options.get("schema").asText();
+            String schemaMode = options.has("schemaMode") ?
+                options.get("schemaMode").asText() : "";
+            String component = contextview.has("component") ?
+                contextview.get("component").asText() : "";
+
+            // Build schema path (PHP: lines 347-348)
+            Path schemaPath = formsDir.resolve(schemaName + ".json");
+
+            // Track the schema file (even when missing) for cache invalidation
+            FileStamp stamp = sources.computeIfAbsent(schemaPath, FileStamp::of);
+
+            // Load and transform (PHP: addAngularJSONClasses), shared per (file, mode, component)
+            CompletableFuture<JsonNode> schema =
+                schemaStore.getSchema(schemaPath, stamp, schemaMode, component, executor);
+
+            reference = new SchemaReference(contextviewKey, contextview, schemaName, schemaPath, schema);
+        }
+
+#if($enableDynamicEnums == "true")
+        // Process dynamic select fields (PHP: selectFields - line 336)
+        processDynamicFields((ObjectNode) options);
+#end
 
-            // Handle search_enum_function (PHP: lines 592-597)
-            if ("search_enum_function".equals(key) && value.isTextual()) {
-                String functionName = value.asText();
-                logger.debug("Dynamic search enum function to execute: {}", functionName);
+        return reference;
+    }
+
+    /**
+     * Inline a loaded schema into its contextview options - equivalent to PHP lines 348-359
+     */
+    private void inlineSchema(ObjectNode contextviewOptions, SchemaReference reference) {
+        try {
+            JsonNode schemaJson = await(reference.schema);
+
+            if (schemaJson != null) {
+                // Inline schema into contextview (PHP: line 354)
+                contextviewOptions.set("schema", schemaJson);
+
+                logger.debug("Schema '{}' loaded and processed for contextview '{}'",
+                    reference.schemaName, reference.contextviewKey);
+
+            } else {
+                // Schema not found - set error message (PHP: lines 356-358)
+                contextviewOptions.putNull("schema");
+                contextviewOptions.put("schemaMessage",
+                    "Lo schema di configurazione '" + reference.schemaName +
+                    "' non esiste o contiene degli errori, controllare i file di configurazione");
+
+                logger.warn("Schema file not found: {}", reference.schemaPath);
             }
 
-            // Recurse into nested objects
-            if (value.isObject()) {
-                searchFields((ObjectNode) value);
+        } catch (IOException e) {
+            logger.error("Error processing schema '{}' for contextview '{}'",
+                reference.schemaName, reference.contextviewKey, e);
+        }
+    }
+
+    /**
+     * Wait for a schema task, rethrowing its original exception
+     */
+    private static JsonNode await(CompletableFuture<JsonNode> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
             }
+            throw e;
         }
+    }
 
-        return node;
+    /**
+     * Executor for schema tasks: the schema pool, or the calling thread
+     * when parallel loading is disabled
+     */
+    private Executor schemaExecutor() {
+        ForkJoinPool pool = schemaPool;
+        return pool != null ? pool : Runnable::run;
     }
 
 #if($enableDynamicEnums == "true")
@@ -340,4 +903,251 @@ public class ContextViewProcessor {
     public ObjectMapper getObjectMapper() {
         return objectMapper;
     }
+
+    /**
+     * Role-independent result of loading and transforming a module JSON.
+     * The data tree is shared between requests and must not be modified.
+     * A new instance is created on every recompilation.
+     */
+    public class CompiledConfiguration {
+        private final ModuleIndex module;
+        private final JsonNode data;
+        private final SourceFiles sources;
+        private final Map<Path, Set<String>> formUsers;
+        private volatile RoleAuthorizationFilter.Snapshots snapshots;
+#if($enableBreadcrumbs == "true")
+        private volatile BreadcrumbGenerator.ParentIndex parentIndex;
+#end
+
+        CompiledConfiguration(ModuleIndex module, JsonNode data, SourceFiles sources,
+                              Map<Path, Set<String>> formUsers) {
+            this.module = module;
+            this.data = data;
+            this.sources = sources;
+            this.formUsers = formUsers;
+        }
+
+        /**
+         * Build up front what requests would otherwise build on first use
+         */
+        void prepare() {
+            if (roleSnapshots) {
+                getSnapshots();
+            }
+#if($enableBreadcrumbs == "true")
+            if (!roleSnapshots && data.get("contextviews") instanceof ObjectNode) {
+                getParentIndex();
+            }
+#end
+        }
+
+        /**
+         * Compiled, unfiltered configuration (shared, must not be modified)
+         */
+        public JsonNode getData() {
+            return data;
+        }
+
+        RoleAuthorizationFilter.Snapshots getSnapshots() {
+            RoleAuthorizationFilter.Snapshots result = snapshots;
+            if (result == null) {
+                synchronized (this) {
+                    result = snapshots;
+                    if (result == null) {
+                        result = roleFilter.precompute(data, ContextViewProcessor.this::finishConfiguration);
+                        snapshots = result;
+                    }
+                }
+            }
+            return result;
+        }
+#if($enableBreadcrumbs == "true")
+
+        BreadcrumbGenerator.ParentIndex getParentIndex() {
+            BreadcrumbGenerator.ParentIndex result = parentIndex;
+            if (result == null) {
+                result = breadcrumbGenerator.buildParentIndex((ObjectNode) data.get("contextviews"));
+                parentIndex = result;
+            }
+            return result;
+        }
+#end
+    }
+
+    /**
+     * Raw main.json of a module, used to compile single contextviews on demand.
+     * The data tree is shared and must not be modified.
+     */
+    private class ModuleIndex {
+        private final String jsonPath;
+        private final JsonNode data;
+        private final SourceFiles sources;
+        private final Map<String, CompiledContextView> views = new ConcurrentHashMap<>();
+#if($enableBreadcrumbs == "true")
+        private volatile BreadcrumbGenerator.ParentIndex parentIndex;
+#end
+
+        ModuleIndex(String jsonPath, JsonNode data, SourceFiles sources) {
+            this.jsonPath = jsonPath;
+            this.data = data;
+            this.sources = sources;
+        }
+
+        ObjectNode getContextviews() {
+            JsonNode contextviews = data.get("contextviews");
+            return contextviews instanceof ObjectNode ? (ObjectNode) contextviews : null;
+        }
+#if($enableBreadcrumbs == "true")
+
+        BreadcrumbGenerator.ParentIndex getParentIndex() {
+            BreadcrumbGenerator.ParentIndex result = parentIndex;
+            if (result == null) {
+                result = breadcrumbGenerator.buildParentIndex(getContextviews());
+                parentIndex = result;
+            }
+            return result;
+        }
+#end
+    }
+
+    /**
+     * A single contextview with its schema inlined, compiled without the rest
+     * of the module. The contextview node is shared and must not be modified.
+     * A new instance is created when its form or main.json changes.
+     */
+    public class CompiledContextView {
+        private final ModuleIndex module;
+        private final String contextviewKey;
+        private final JsonNode contextview;
+        private final SourceFiles sources;
+        private final Map<RoleKey, Optional<JsonNode>> filtered;
+
+        CompiledContextView(ModuleIndex module, String contextviewKey, JsonNode contextview, SourceFiles sources) {
+            this.module = module;
+            this.contextviewKey = contextviewKey;
+            this.contextview = contextview;
+            this.sources = sources;
+            this.filtered = Collections.synchronizedMap(new LinkedHashMap<RoleKey, Optional<JsonNode>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<RoleKey, Optional<JsonNode>> eldest) {
+                    return size() > MAX_FILTERED_VIEWS;
+                }
+            });
+        }
+
+        /**
+         * Filtered and breadcrumbed contextview for a role, built once per
+         * (role, maintenanceMode)
+         */
+        JsonNode getFiltered(String role, boolean maintenanceMode) {
+            RoleKey key = new RoleKey(role, maintenanceMode);
+            Optional<JsonNode> result = filtered.get(key);
+            if (result == null) {
+                result = Optional.ofNullable(filterContextView(this, role, maintenanceMode));
+                Optional<JsonNode> existing = filtered.putIfAbsent(key, result);
+                if (existing != null) {
+                    result = existing;
+                }
+            }
+            return result.orElse(null);
+        }
+    }
+
+    /**
+     * Source files of a cached entry with their stamps
+     */
+    private static final class SourceFiles {
+        private final Map<Path, FileStamp> stamps;
+        private volatile long lastChecked;
+
+        SourceFiles(Map<Path, FileStamp> stamps) {
+            this.stamps = stamps;
+            this.lastChecked = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Filtered view index key
+     */
+    private static final class RoleKey {
+        private final String role;
+        private final boolean maintenanceMode;
+
+        RoleKey(String role, boolean maintenanceMode) {
+            this.role = role;
+            this.maintenanceMode = maintenanceMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RoleKey)) return false;
+            RoleKey other = (RoleKey) o;
+            return maintenanceMode == other.maintenanceMode && Objects.equals(role, other.role);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(role, maintenanceMode);
+        }
+    }
+
+    /**
+     * Schema referenced by a contextview, being loaded and transformed
+     */
+    private static final class SchemaReference {
+        private final String contextviewKey;
+        private final JsonNode contextview;
+        private final String schemaName;
+        private final Path schemaPath;
+        private final CompletableFuture<JsonNode> schema;
+
+        SchemaReference(String contextviewKey, JsonNode contextview, String schemaName,
+                        Path schemaPath, CompletableFuture<JsonNode> schema) {
+            this.contextviewKey = contextviewKey;
+            this.contextview = contextview;
+            this.schemaName = schemaName;
+            this.schemaPath = schemaPath;
+            this.schema = schema;
+        }
+    }
+
+    /**
+     * Snapshot of the compiled configuration cache counters
+     */
+    public static class CacheStatistics {
+        private final long hits;
+        private final long misses;
+        private final long reloads;
+        private final int entries;
+        private final long schemaLoads;
+
+        CacheStatistics(long hits, long misses, long reloads, int entries, long schemaLoads) {
+            this.hits = hits;
+            this.misses = misses;
+            this.reloads = reloads;
+            this.entries = entries;
+            this.schemaLoads = schemaLoads;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getReloads() {
+            return reloads;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getSchemaLoads() {
+            return schemaLoads;
+        }
+    }
 }
@@ -0,0 +1,57 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.processor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+
+/**
+ * Modification time and size of a source file (-1/-1 if missing)
+ *
+ * @author TomEEx Dev Team
+ */
+final class FileStamp {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileStamp.class);
+
+    private final long lastModified;
+    private final long size;
+
+    private FileStamp(long lastModified, long size) {
+        this.lastModified = lastModified;
+        this.size = size;
+    }
+
+    static FileStamp of(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+        } catch (NoSuchFileException e) {
+            return new FileStamp(-1, -1);
+        } catch (IOException e) {
+            logger.warn("Cannot read attributes of {}", path, e);
+            return new FileStamp(-1, -1);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FileStamp)) return false;
+        FileStamp other = (FileStamp) o;
+        return lastModified == other.lastModified && size == other.size;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lastModified, size);
+    }
+}
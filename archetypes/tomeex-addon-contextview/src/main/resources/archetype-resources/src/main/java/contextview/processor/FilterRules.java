@@ -0,0 +1,64 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.processor;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Per-node decisions of a role filter, for one (role, maintenanceMode) pair.
+ *
+ * Shared by the tree filter ({@link RoleAuthorizationFilter}), the streaming
+ * writer ({@link StreamingConfigurationWriter}) and the breadcrumb generator,
+ * so that every engine removes and rewrites exactly the same nodes.
+ *
+ * @author TomEEx Dev Team
+ */
+public interface FilterRules {
+
+    /**
+     * Rules of a disabled filter: every node is kept unchanged
+     */
+    FilterRules UNFILTERED = new FilterRules() {
+        @Override
+        public boolean keepField(String key, ObjectNode value) {
+            return true;
+        }
+
+        @Override
+        public boolean keepElement(ObjectNode element) {
+            return true;
+        }
+
+        @Override
+        public String dataAlias(ObjectNode value) {
+            return null;
+        }
+
+        @Override
+        public boolean descend(String key) {
+            return true;
+        }
+    };
+
+    /**
+     * Whether an object stored under a field of another object is kept
+     */
+    boolean keepField(String key, ObjectNode value);
+
+    /**
+     * Whether an object stored in an array is kept
+     */
+    boolean keepElement(ObjectNode element);
+
+    /**
+     * Replacement for the "data" property of a kept field object
+     * (table_join.field_alias), or null to leave it unchanged
+     */
+    String dataAlias(ObjectNode value);
+
+    /**
+     * Whether the children of a kept field object are filtered as well
+     */
+    boolean descend(String key);
+}
@@ -10,9 +10,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 /**
  * Role-based authorization filter for contextviews and actions.
@@ -23,12 +30,17 @@ import java.util.Map;
  * - Maintenance mode visibility
  * - Login status requirements
  *
+ * Since the set of roles used by a configuration is small, the filtered tree
+ * for each (role, maintenanceMode) pair can be precomputed once with
+ * {@link ${symbol_pound}precompute} and then served with a map lookup.
+ *
  * @author TomEEx Dev Team
  */
 #if($enableRoleAuthorization == "true")
 public class RoleAuthorizationFilter {
 
     private static final Logger logger = LoggerFactory.getLogger(RoleAuthorizationFilter.class);
+    private static final int MAX_LAZY_SNAPSHOTS = 64;
 
     /**
      * Filter JSON data by role - equivalent to PHP fixRoleAuthorization()
@@ -42,79 +54,185 @@ public class RoleAuthorizationFilter {
         logger.debug("Filtering by role: {}, maintenance: {}", role, maintenanceMode);
 
         ObjectNode mutableData = data.deepCopy();
-        filterNode(mutableData, role, maintenanceMode);
+        filterNode(mutableData, rules(role, maintenanceMode));
 
         return mutableData;
     }
 
     /**
-     * Recursively filter a JSON node
+     * Filter a single contextview: same result as
+     * filterByRole(data).get("contextviews").get(contextviewKey), copying only
+     * that contextview.
+     *
+     * @param contextviews The configuration's contextviews node
+     * @param contextviewKey ContextView key
+     * @param contextview ContextView to filter (not modified)
+     * @param role Active user role
+     * @param maintenanceMode System maintenance status
+     * @return Filtered contextview, or null if it is not visible
      */
-    private void filterNode(ObjectNode node, String role, boolean maintenanceMode) {
+    public JsonNode filterContextview(
+            ObjectNode contextviews,
+            String contextviewKey,
+            JsonNode contextview,
+            String role,
+            boolean maintenanceMode
+    ) {
+        FilterRules rules = rules(role, maintenanceMode);
+        if (!rules.keepField("contextviews", contextviews)) {
+            return null;
+        }
 
-        List<String> keysToRemove = new ArrayList<>();
-        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        String containerAlias = rules.dataAlias(contextviews);
+        if (containerAlias != null && "data".equals(contextviewKey)) {
+            return contextviews.textNode(containerAlias);
+        }
 
-        while (fields.hasNext()) {
-            Map.Entry<String, JsonNode> entry = fields.next();
-            String key = entry.getKey();
-            JsonNode value = entry.getValue();
+        if (contextview.isObject()) {
+            if (!rules.keepField(contextviewKey, (ObjectNode) contextview)) {
+                return null;
+            }
+            ObjectNode filtered = contextview.deepCopy();
+            String alias = rules.dataAlias(filtered);
+            if (alias != null) {
+                filtered.put("data", alias);
+            }
+            if (rules.descend(contextviewKey)) {
+                filterNode(filtered, rules);
+            }
+            return filtered;
+        }
 
-            boolean shouldRemove = false;
+        if (contextview.isArray()) {
+            ArrayNode filtered = contextview.deepCopy();
+            filterArray(filtered, rules);
+            return filtered;
+        }
 
-            if (value.isObject()) {
-                ObjectNode objValue = (ObjectNode) value;
+        return contextview;
+    }
 
-                // Check role authorization (PHP: lines 443-458)
-                if (objValue.has("role") || objValue.has("roles")) {
-                    shouldRemove = !isRoleAuthorized(objValue, role);
-                }
+    /**
+     * Precompute filtered snapshots of a configuration for every role it
+     * mentions (plus unauthenticated and "@"), in and out of maintenance mode.
+     * Roles not mentioned in the configuration are built lazily on first use.
+     *
+     * @param data Configuration to filter (not modified)
+     * @param finisher Post-processing applied to each filtered copy (e.g. breadcrumbs)
+     * @return Snapshots indexed by role and maintenance mode
+     */
+    public Snapshots precompute(JsonNode data, UnaryOperator<JsonNode> finisher) {
+        Set<String> roles = new LinkedHashSet<>();
+        roles.add(null); // Unauthenticated
+        roles.add("@");  // Unvalidated
+        collectRoles(data, roles);
+
+        Map<SnapshotKey, JsonNode> precomputed = new HashMap<>();
+        for (String role : roles) {
+            for (boolean maintenanceMode : new boolean[]{false, true}) {
+                precomputed.put(new SnapshotKey(role, maintenanceMode),
+                    finisher.apply(filterByRole(data, role, maintenanceMode)));
+            }
+        }
 
-                // Check backend flag (PHP: lines 467-469)
-                if (!shouldRemove && objValue.has("backend") &&
-                    objValue.get("backend").asBoolean()) {
-                    shouldRemove = true;
-                }
+        logger.debug("Precomputed {} role snapshots for roles {}", precomputed.size(), roles);
+        return new Snapshots(data, finisher, precomputed);
+    }
 
-                // Check only-not-logged flag (PHP: lines 472-474)
-                if (!shouldRemove && objValue.has("only-not-logged") &&
-                    objValue.get("only-not-logged").asBoolean() &&
-                    role != null && !role.isEmpty()) {
-                    shouldRemove = true;
+    /**
+     * Collect the concrete role names referenced by role/roles properties
+     */
+    private void collectRoles(JsonNode node, Set<String> roles) {
+        if (node.isObject()) {
+            JsonNode roleNode = node.has("role") ? node.get("role") : node.get("roles");
+            if (roleNode != null) {
+                if (roleNode.isArray()) {
+                    roleNode.forEach(roleEntry -> addRole(roleEntry.asText(), roles));
+                } else {
+                    addRole(roleNode.asText(), roles);
                 }
+            }
+        }
+        if (node.isContainerNode()) {
+            node.forEach(child -> collectRoles(child, roles));
+        }
+    }
 
-                // Check maintenance mode visibility (PHP: lines 477-484)
-                if (!shouldRemove && maintenanceMode &&
-                    objValue.has("hide_in_maintenance") &&
-                    objValue.get("hide_in_maintenance").asBoolean()) {
-                    shouldRemove = true;
-                }
+    private void addRole(String role, Set<String> roles) {
+        // "*" and "!" are patterns, not roles a user can have
+        if (!"*".equals(role) && !"!".equals(role)) {
+            roles.add(role);
+        }
+    }
 
-                if (!shouldRemove && !maintenanceMode &&
-                    objValue.has("show_in_maintenance") &&
-                    objValue.get("show_in_maintenance").asBoolean()) {
-                    shouldRemove = true;
-                }
+    /**
+     * Per-node rules for a role and maintenance mode, shared with the
+     * streaming writer and the breadcrumb generator
+     */
+    public FilterRules rules(String role, boolean maintenanceMode) {
+        return new FilterRules() {
+            @Override
+            public boolean keepField(String key, ObjectNode value) {
+                return isFieldVisible(value, role, maintenanceMode);
+            }
 
+            @Override
+            public boolean keepElement(ObjectNode element) {
+                return isElementVisible(element, role);
+            }
+
+            @Override
+            public String dataAlias(ObjectNode value) {
                 // Handle table_join field_alias (PHP: lines 460-464)
-                if (!shouldRemove && objValue.has("table_join") && objValue.has("data")) {
-                    JsonNode tableJoin = objValue.get("table_join");
+                if (value.has("table_join") && value.has("data")) {
+                    JsonNode tableJoin = value.get("table_join");
                     if (tableJoin.has("field_alias")) {
-                        objValue.put("data", tableJoin.get("field_alias").asText());
+                        return tableJoin.get("field_alias").asText();
                     }
                 }
+                return null;
+            }
+
+            @Override
+            public boolean descend(String key) {
+                // Recurse into nested object (PHP: line 494)
+                return !"search_enum".equals(key);
+            }
+        };
+    }
+
+    /**
+     * Recursively filter a JSON node
+     */
+    private void filterNode(ObjectNode node, FilterRules rules) {
+
+        List<String> keysToRemove = new ArrayList<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            String key = entry.getKey();
+            JsonNode value = entry.getValue();
 
-                if (shouldRemove) {
+            if (value.isObject()) {
+                ObjectNode objValue = (ObjectNode) value;
+
+                if (!rules.keepField(key, objValue)) {
                     keysToRemove.add(key);
-                } else {
-                    // Recurse into nested object (PHP: line 494)
-                    if (!"search_enum".equals(key)) {
-                        filterNode(objValue, role, maintenanceMode);
-                    }
+                    continue;
+                }
+
+                String alias = rules.dataAlias(objValue);
+                if (alias != null) {
+                    objValue.put("data", alias);
+                }
+
+                if (rules.descend(key)) {
+                    filterNode(objValue, rules);
                 }
             } else if (value.isArray()) {
                 // Filter array elements
-                filterArray((ArrayNode) value, role, maintenanceMode);
+                filterArray((ArrayNode) value, rules);
             }
         }
 
@@ -125,7 +243,7 @@ public class RoleAuthorizationFilter {
     /**
      * Filter array nodes
      */
-    private void filterArray(ArrayNode array, String role, boolean maintenanceMode) {
+    private void filterArray(ArrayNode array, FilterRules rules) {
         List<Integer> indicesToRemove = new ArrayList<>();
 
         for (int i = 0; i < array.size(); i++) {
@@ -133,21 +251,10 @@ public class RoleAuthorizationFilter {
             if (element.isObject()) {
                 ObjectNode objElement = (ObjectNode) element;
 
-                boolean shouldRemove = false;
-
-                if (objElement.has("role") || objElement.has("roles")) {
-                    shouldRemove = !isRoleAuthorized(objElement, role);
-                }
-
-                if (!shouldRemove && objElement.has("backend") &&
-                    objElement.get("backend").asBoolean()) {
-                    shouldRemove = true;
-                }
-
-                if (shouldRemove) {
-                    indicesToRemove.add(i);
+                if (rules.keepElement(objElement)) {
+                    filterNode(objElement, rules);
                 } else {
-                    filterNode(objElement, role, maintenanceMode);
+                    indicesToRemove.add(i);
                 }
             }
         }
@@ -158,6 +265,46 @@ public class RoleAuthorizationFilter {
         }
     }
 
+    /**
+     * Visibility of an object stored under a field (PHP: lines 443-484)
+     */
+    private boolean isFieldVisible(ObjectNode value, String role, boolean maintenanceMode) {
+        // Check role authorization (PHP: lines 443-458)
+        if ((value.has("role") || value.has("roles")) && !isRoleAuthorized(value, role)) {
+            return false;
+        }
+
+        // Check backend flag (PHP: lines 467-469)
+        if (value.has("backend") && value.get("backend").asBoolean()) {
+            return false;
+        }
+
+        // Check only-not-logged flag (PHP: lines 472-474)
+        if (value.has("only-not-logged") && value.get("only-not-logged").asBoolean() &&
+            role != null && !role.isEmpty()) {
+            return false;
+        }
+
+        // Check maintenance mode visibility (PHP: lines 477-484)
+        if (maintenanceMode && value.has("hide_in_maintenance") &&
+            value.get("hide_in_maintenance").asBoolean()) {
+            return false;
+        }
+
+        return maintenanceMode || !value.has("show_in_maintenance") ||
+            !value.get("show_in_maintenance").asBoolean();
+    }
+
+    /**
+     * Visibility of an object stored in an array (role and backend only)
+     */
+    private boolean isElementVisible(ObjectNode element, String role) {
+        if ((element.has("role") || element.has("roles")) && !isRoleAuthorized(element, role)) {
+            return false;
+        }
+        return !element.has("backend") || !element.get("backend").asBoolean();
+    }
+
     /**
      * Check if role is authorized - equivalent to PHP role check logic (lines 443-458)
      */
@@ -206,6 +353,76 @@ public class RoleAuthorizationFilter {
             return "@".equals(allowedRole) && "@".equals(role);
         }
     }
+
+    /**
+     * Filtered configuration trees indexed by (role, maintenanceMode).
+     * Returned trees are shared between requests and must not be modified.
+     */
+    public class Snapshots {
+        private final JsonNode source;
+        private final UnaryOperator<JsonNode> finisher;
+        private final Map<SnapshotKey, JsonNode> precomputed;
+        private final Map<SnapshotKey, JsonNode> lazy;
+
+        Snapshots(JsonNode source, UnaryOperator<JsonNode> finisher, Map<SnapshotKey, JsonNode> precomputed) {
+            this.source = source;
+            this.finisher = finisher;
+            this.precomputed = Collections.unmodifiableMap(precomputed);
+            this.lazy = Collections.synchronizedMap(new LinkedHashMap<SnapshotKey, JsonNode>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<SnapshotKey, JsonNode> eldest) {
+                    return size() > MAX_LAZY_SNAPSHOTS;
+                }
+            });
+        }
+
+        /**
+         * Get the filtered tree for a role, building it if the role is new
+         */
+        public JsonNode get(String role, boolean maintenanceMode) {
+            SnapshotKey key = new SnapshotKey(role, maintenanceMode);
+
+            JsonNode snapshot = precomputed.get(key);
+            if (snapshot == null) {
+                snapshot = lazy.get(key);
+            }
+            if (snapshot == null) {
+                logger.debug("Building role snapshot for role: {}, maintenance: {}", role, maintenanceMode);
+                snapshot = finisher.apply(filterByRole(source, role, maintenanceMode));
+                JsonNode existing = lazy.putIfAbsent(key, snapshot);
+                if (existing != null) {
+                    snapshot = existing;
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Snapshot index key
+     */
+    private static final class SnapshotKey {
+        private final String role;
+        private final boolean maintenanceMode;
+
+        SnapshotKey(String role, boolean maintenanceMode) {
+            this.role = role;
+            this.maintenanceMode = maintenanceMode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SnapshotKey)) return false;
+            SnapshotKey other = (SnapshotKey) o;
+            return maintenanceMode == other.maintenanceMode && Objects.equals(role, other.role);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(role, maintenanceMode);
+        }
+    }
 }
 #else
 public class RoleAuthorizationFilter {
@@ -214,7 +431,39 @@ public class RoleAuthorizationFilter {
         com.fasterxml.jackson.databind.JsonNode data,
         String role,
         boolean maintenanceMode) {
-        return data;
+        return data.deepCopy();
+    }
+
+    public FilterRules rules(String role, boolean maintenanceMode) {
+        return FilterRules.UNFILTERED;
+    }
+
+    public com.fasterxml.jackson.databind.JsonNode filterContextview(
+        com.fasterxml.jackson.databind.node.ObjectNode contextviews,
+        String contextviewKey,
+        com.fasterxml.jackson.databind.JsonNode contextview,
+        String role,
+        boolean maintenanceMode) {
+        return contextview.deepCopy();
+    }
+
+    public Snapshots precompute(
+        com.fasterxml.jackson.databind.JsonNode data,
+        java.util.function.UnaryOperator<com.fasterxml.jackson.databind.JsonNode> finisher) {
+        return new Snapshots(finisher.apply(data.deepCopy()));
+    }
+
+    // Without role filtering every role sees the same tree
+    public static class Snapshots {
+        private final com.fasterxml.jackson.databind.JsonNode snapshot;
+
+        Snapshots(com.fasterxml.jackson.databind.JsonNode snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public com.fasterxml.jackson.databind.JsonNode get(String role, boolean maintenanceMode) {
+            return snapshot;
+        }
     }
 }
 #end
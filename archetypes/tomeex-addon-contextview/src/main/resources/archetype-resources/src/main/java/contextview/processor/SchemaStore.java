@@ -0,0 +1,267 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.processor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Store of parsed form schemas (forms/*.json).
+ *
+ * Keeps one parsed base schema per file and one transformed variant per
+ * (schemaMode, component) of that file. Variants share every subtree the
+ * transformation does not touch with the base (only the rewritten field
+ * objects are copied), and contextviews using the same variant share the
+ * same node. Entries survive recompilations of main.json and are reloaded
+ * only when the file itself changes.
+ *
+ * Returned nodes are shared and must not be modified.
+ *
+ * @author TomEEx Dev Team
+ */
+final class SchemaStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaStore.class);
+
+    private final ObjectMapper objectMapper;
+    private final Map<Path, SchemaFile> files = new ConcurrentHashMap<>();
+    private final AtomicLong loads = new AtomicLong();
+
+    SchemaStore(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Get the transformed schema of a form file, loading the file and
+     * building the variant only if needed.
+     *
+     * @param schemaPath Form file
+     * @param stamp Stamp of the file recorded by the caller; a different
+     *        stamp than the stored one reloads the file
+     * @param mode Schema mode (insert/update)
+     * @param component ContextView component
+     * @param executor Executor for loading and transforming
+     * @return Transformed schema, null if the file does not exist, or
+     *         completed exceptionally with an UncheckedIOException if it
+     *         cannot be parsed
+     */
+    CompletableFuture<JsonNode> getSchema(
+            Path schemaPath,
+            FileStamp stamp,
+            String mode,
+            String component,
+            Executor executor
+    ) {
+        SchemaFile file = files.compute(schemaPath, (path, current) ->
+            current != null && current.stamp.equals(stamp) ?
+                current :
+                new SchemaFile(stamp, CompletableFuture.supplyAsync(() -> load(path), executor)));
+
+        return file.variants.computeIfAbsent(new VariantKey(mode, component), key ->
+            file.base.thenApplyAsync(base -> base == null ?
+                null : applySchemaTransformations(base, mode, component), executor));
+    }
+
+    /**
+     * Drop every stored schema
+     */
+    void clear() {
+        files.clear();
+    }
+
+    /**
+     * Number of form files parsed so far
+     */
+    long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * Load a schema file (PHP: file_get_contents + json_decode), or null if it does not exist
+     */
+    private JsonNode load(Path schemaPath) {
+        if (!Files.exists(schemaPath)) {
+            return null;
+        }
+        try (InputStream is = Files.newInputStream(schemaPath)) {
+            loads.incrementAndGet();
+            logger.debug("Loading schema file: {}", schemaPath);
+            return objectMapper.readTree(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Apply schema transformations - equivalent to PHP addAngularJSONClasses()
+     */
+    private JsonNode applySchemaTransformations(
+            JsonNode schemaJson,
+            String mode,
+            String component
+    ) {
+        JsonNode variant = schemaJson;
+
+#if($enableCustomForm == "true")
+        // For custom-form component (PHP: lines 128-134)
+        if ("custom-form".equals(component)) {
+            // Find conditional validations
+            // Insert condition validations
+            // Insert checkbox arrays
+            variant = prepareJsonSchema((ObjectNode) schemaJson, mode);
+        }
+#end
+
+#if($enableCustomGrid == "true" || $enableCustomForm == "true")
+        // For custom-grid or custom-form (PHP: lines 136-138)
+        if ("custom-grid".equals(component) || "custom-form".equals(component)) {
+            searchFields(variant);
+        }
+#end
+
+        return variant;
+    }
+
+    /**
+     * Prepare JSON schema based on mode - equivalent to PHP prepareJsonSchema()
+     *
+     * Copy-on-write: the root, the "schema" object and each field object are
+     * copied shallowly before being changed, everything below them is shared.
+     */
+    private ObjectNode prepareJsonSchema(ObjectNode schemaJson, String mode) {
+
+        if (!schemaJson.has("schema")) {
+            return schemaJson;
+        }
+
+        ObjectNode schema = (ObjectNode) schemaJson.get("schema");
+        ObjectNode preparedSchema = schema.objectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = schema.fields();
+
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String fieldKey = field.getKey();
+            ObjectNode fieldValue = shallowCopy((ObjectNode) field.getValue());
+
+            // Add CSS class for field (PHP: lines 534-535)
+            String existingClass = fieldValue.has("fieldHtmlClass") ?
+                fieldValue.get("fieldHtmlClass").asText() + " " : "";
+            fieldValue.put("fieldHtmlClass", existingClass + fieldKey + "_olof");
+
+            // Handle readOnly based on mode (PHP: lines 537-543)
+            if ("update".equals(mode) &&
+                fieldValue.has("readOnly_for_update") &&
+                fieldValue.get("readOnly_for_update").asBoolean()) {
+                fieldValue.put("readOnly", true);
+            }
+
+            if ("insert".equals(mode) &&
+                fieldValue.has("readOnly_for_insert") &&
+                fieldValue.get("readOnly_for_insert").asBoolean()) {
+                fieldValue.put("readOnly", true);
+            }
+
+            preparedSchema.set(fieldKey, fieldValue);
+        }
+
+        ObjectNode prepared = shallowCopy(schemaJson);
+        prepared.set("schema", preparedSchema);
+        return prepared;
+    }
+
+    /**
+     * Process dynamic fields (enums, selects) - equivalent to PHP searchFields().
+     * Runs on shared nodes, so it must not modify them.
+     */
+    private void searchFields(JsonNode node) {
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> entry = fields.next();
+            String key = entry.getKey();
+            JsonNode value = entry.getValue();
+
+            // Handle enum_function (PHP: lines 598-603)
+            if ("enum_function".equals(key) && value.isTextual()) {
+                String functionName = value.asText();
+                // TODO: Implement dynamic function execution
+                // For now, log the function to be called
+                logger.debug("Dynamic enum function to execute: {}", functionName);
+            }
+
+            // Handle search_enum_function (PHP: lines 592-597)
+            if ("search_enum_function".equals(key) && value.isTextual()) {
+                String functionName = value.asText();
+                logger.debug("Dynamic search enum function to execute: {}", functionName);
+            }
+
+            // Recurse into nested objects
+            if (value.isObject()) {
+                searchFields(value);
+            }
+        }
+    }
+
+    static ObjectNode shallowCopy(ObjectNode node) {
+        ObjectNode copy = node.objectNode();
+        copy.setAll(node);
+        return copy;
+    }
+
+    /**
+     * Parsed form file and its transformed variants
+     */
+    private static final class SchemaFile {
+        private final FileStamp stamp;
+        private final CompletableFuture<JsonNode> base;
+        private final Map<VariantKey, CompletableFuture<JsonNode>> variants = new ConcurrentHashMap<>();
+
+        SchemaFile(FileStamp stamp, CompletableFuture<JsonNode> base) {
+            this.stamp = stamp;
+            this.base = base;
+        }
+    }
+
+    /**
+     * Variant index key
+     */
+    private static final class VariantKey {
+        private final String mode;
+        private final String component;
+
+        VariantKey(String mode, String component) {
+            this.mode = mode;
+            this.component = component;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof VariantKey)) return false;
+            VariantKey other = (VariantKey) o;
+            return mode.equals(other.mode) && component.equals(other.component);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mode, component);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.processor;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Filter-on-write serializer for compiled configurations.
+ *
+ * Walks the shared compiled tree and writes the role-filtered output
+ * (removed nodes, table_join.field_alias rewrite, breadcrumbs) straight to a
+ * JsonGenerator, without building a filtered copy first. Extra memory is
+ * proportional to the nesting depth, and the bytes written are the same as
+ * serializing the tree produced by {@link RoleAuthorizationFilter${symbol_pound}filterByRole}
+ * followed by {@link BreadcrumbGenerator}.
+ *
+ * @author TomEEx Dev Team
+ */
+public class StreamingConfigurationWriter {
+
+    private static final String CONTEXTVIEWS = "contextviews";
+    private static final String BREADCRUMBS = "breadcrumbs";
+    private static final String DATA = "data";
+
+    /**
+     * Breadcrumbs of a contextview in the filtered output
+     */
+    @FunctionalInterface
+    public interface BreadcrumbSource {
+        /**
+         * @return Breadcrumbs node to set on the contextview, or null for none
+         */
+        JsonNode breadcrumbsFor(String contextviewKey);
+    }
+
+    private final FilterRules rules;
+    private final BreadcrumbSource breadcrumbs;
+    private final JsonGenerator generator;
+
+    /**
+     * @param rules Filter rules for the requested role and maintenance mode
+     * @param breadcrumbs Breadcrumb source (or null when breadcrumbs are disabled)
+     * @param generator Output generator (its codec serializes unchanged subtrees)
+     */
+    public StreamingConfigurationWriter(FilterRules rules, BreadcrumbSource breadcrumbs, JsonGenerator generator) {
+        this.rules = rules;
+        this.breadcrumbs = breadcrumbs;
+        this.generator = generator;
+    }
+
+    /**
+     * Write the whole filtered configuration
+     */
+    public void writeConfiguration(JsonNode data) throws IOException {
+        if (data.isObject()) {
+            writeObject((ObjectNode) data, null, true, Level.ROOT, null);
+        } else {
+            generator.writeTree(data);
+        }
+    }
+
+    /**
+     * Write the filtered "contextviews" node of a configuration
+     *
+     * @return false if the configuration has no (visible) contextviews
+     */
+    public boolean writeContextviews(JsonNode data) throws IOException {
+        JsonNode contextviews = data.isObject() ? data.get(CONTEXTVIEWS) : null;
+        if (contextviews == null) {
+            return false;
+        }
+        if (contextviews.isObject()) {
+            ObjectNode node = (ObjectNode) contextviews;
+            if (!rules.keepField(CONTEXTVIEWS, node)) {
+                return false;
+            }
+            writeObject(node, rules.dataAlias(node), rules.descend(CONTEXTVIEWS), Level.CONTAINER, null);
+        } else {
+            writeValue(contextviews);
+        }
+        return true;
+    }
+
+    /**
+     * Write a single filtered contextview
+     *
+     * @return false if the contextview does not exist or is not visible
+     */
+    public boolean writeContextview(JsonNode data, String contextviewKey) throws IOException {
+        JsonNode contextviews = data.isObject() ? data.get(CONTEXTVIEWS) : null;
+        if (contextviews == null || !contextviews.isObject()) {
+            return false;
+        }
+
+        JsonNode contextview = contextviews.get(contextviewKey);
+        return contextview != null &&
+            writeContextview((ObjectNode) contextviews, contextviewKey, contextview);
+    }
+
+    /**
+     * Write a single filtered contextview taken from outside the configuration
+     * tree (e.g. compiled on its own)
+     *
+     * @param contextviews The configuration's contextviews node
+     * @param contextviewKey ContextView key
+     * @param contextview ContextView to write
+     * @return false if the contextview is not visible
+     */
+    public boolean writeContextview(
+            ObjectNode contextviews,
+            String contextviewKey,
+            JsonNode contextview
+    ) throws IOException {
+
+        if (!rules.keepField(CONTEXTVIEWS, contextviews)) {
+            return false;
+        }
+
+        String parentAlias = rules.dataAlias(contextviews);
+        if (parentAlias != null && DATA.equals(contextviewKey)) {
+            generator.writeString(parentAlias);
+            return true;
+        }
+
+        if (contextview.isObject()) {
+            ObjectNode node = (ObjectNode) contextview;
+            if (!rules.keepField(contextviewKey, node)) {
+                return false;
+            }
+            writeObject(node, rules.dataAlias(node), rules.descend(contextviewKey),
+                Level.CONTEXTVIEW, contextviewKey);
+        } else {
+            writeValue(contextview);
+        }
+        return true;
+    }
+
+    /**
+     * Write a kept object
+     *
+     * @param dataAlias Replacement for its "data" property (or null)
+     * @param descend Whether its children are filtered
+     * @param level Position of the object in the configuration
+     * @param contextviewKey Contextview key when level is CONTEXTVIEW
+     */
+    private void writeObject(
+            ObjectNode node,
+            String dataAlias,
+            boolean descend,
+            Level level,
+            String contextviewKey
+    ) throws IOException {
+
+        JsonNode breadcrumbsNode = breadcrumbs != null && level == Level.CONTEXTVIEW ?
+            breadcrumbs.breadcrumbsFor(contextviewKey) : null;
+
+        generator.writeStartObject();
+
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String key = field.getKey();
+            JsonNode value = field.getValue();
+
+            if (dataAlias != null && DATA.equals(key)) {
+                generator.writeStringField(DATA, dataAlias);
+                continue;
+            }
+
+            boolean kept = !descend || !value.isObject() || rules.keepField(key, (ObjectNode) value);
+            if (!kept) {
+                continue;
+            }
+
+            generator.writeFieldName(key);
+
+            if (breadcrumbsNode != null && BREADCRUMBS.equals(key)) {
+                // Replaced in place, like ObjectNode.set() on an existing field
+                generator.writeTree(breadcrumbsNode);
+                breadcrumbsNode = null;
+            } else if (!descend) {
+                generator.writeTree(value);
+            } else if (value.isObject()) {
+                ObjectNode child = (ObjectNode) value;
+                writeObject(child, rules.dataAlias(child), rules.descend(key), level.child(key), key);
+            } else {
+                writeValue(value);
+            }
+        }
+
+        if (breadcrumbsNode != null) {
+            generator.writeFieldName(BREADCRUMBS);
+            generator.writeTree(breadcrumbsNode);
+        }
+
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write a non-object value found in a filtered object
+     */
+    private void writeValue(JsonNode value) throws IOException {
+        if (!value.isArray()) {
+            generator.writeTree(value);
+            return;
+        }
+
+        generator.writeStartArray();
+        for (JsonNode element : (ArrayNode) value) {
+            if (element.isObject()) {
+                ObjectNode objElement = (ObjectNode) element;
+                if (rules.keepElement(objElement)) {
+                    writeObject(objElement, null, true, Level.NESTED, null);
+                }
+            } else {
+                generator.writeTree(element);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Position of an object in the configuration, used to find contextviews
+     */
+    private enum Level {
+        ROOT, CONTAINER, CONTEXTVIEW, NESTED;
+
+        Level child(String key) {
+            if (this == ROOT && CONTEXTVIEWS.equals(key)) {
+                return CONTAINER;
+            }
+            return this == CONTAINER ? CONTEXTVIEW : NESTED;
+        }
+    }
+}
@@ -3,6 +3,8 @@
 #set( $symbol_escape = '\' )
 package ${package}.contextview.servlet;
 
+import ${package}.contextview.core.ContextViewMapper;
+import ${package}.contextview.processor.ConfigurationWatcher;
 import ${package}.contextview.processor.ContextViewProcessor;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,13 +12,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Locale;
 
 /**
  * Servlet for ContextView Configuration API.
@@ -31,6 +35,22 @@ import java.nio.file.Paths;
  * - GET /api/contextview/config              - Get full webapp configuration
  * - GET /api/contextview/list                - List all contextviews
  * - GET /api/contextview/{contextviewKey}       - Get specific contextview
+ * - GET /api/contextview/admin/stats         - Configuration cache counters
+ *   (only with contextviews.stats.enabled=true)
+ *
+ * Responses are served from pre-serialized bytes with a strong ETag;
+ * requests carrying a matching If-None-Match get a 304 with no body.
+ * Clients accepting gzip get the compressed variant kept in the response
+ * cache, for bodies of at least contextviews.compression.minSize bytes
+ * (default 1024, 0 disables it).
+ *
+ * The contextviews.engine context-param selects how responses are built:
+ * "tree" (default) filters a copy of the configuration per role, "streaming"
+ * writes the filtered output directly from the compiled configuration.
+ *
+ * Changes to main.json and forms/*.json are picked up by a file watcher
+ * (contextviews.watch, default true) that rebuilds the affected parts of the
+ * configuration in the background.
  *
  * @author TomEEx Dev Team
  */
@@ -43,17 +63,23 @@ public class ContextViewServlet extends HttpServlet {
 
     private static final Logger logger = LoggerFactory.getLogger(ContextViewServlet.class);
     private static final long serialVersionUID = 1L;
+    private static final int DEFAULT_COMPRESSION_MIN_SIZE = 1024;
 
     private ContextViewProcessor processor;
+    private ConfigurationWatcher watcher;
     private ObjectMapper objectMapper;
+    private ResponseCache responseCache;
+    private boolean streaming;
+    private int compressionMinSize = DEFAULT_COMPRESSION_MIN_SIZE;
+    private boolean statsEnabled;
     private String appName;
 
     @Override
     public void init() throws ServletException {
         super.init();
 
-        // Initialize ObjectMapper
-        objectMapper = new ObjectMapper();
+        objectMapper = ContextViewMapper.get();
+        responseCache = new ResponseCache(objectMapper);
 
         // Get application name from context
         appName = getServletContext().getInitParameter("app.name");
@@ -71,7 +97,62 @@ public class ContextViewServlet extends HttpServlet {
 
         logger.info("Initializing ContextViewProcessor for app '{}' with path: {}",
             appName, contextviewsPath);
-        this.processor = new ContextViewProcessor(Paths.get(contextviewsPath));
+        Path modulesBasePath = Paths.get(contextviewsPath);
+        this.processor = new ContextViewProcessor(modulesBasePath);
+
+        // How often (ms) the cached configuration is checked against the files on disk
+        String checkInterval = getServletContext().getInitParameter("contextviews.cache.checkInterval");
+        if (checkInterval != null) {
+            processor.setCheckIntervalMillis(Long.parseLong(checkInterval.trim()));
+        }
+
+        // Precomputed per-role snapshots (default: enabled)
+        String roleSnapshots = getServletContext().getInitParameter("contextviews.cache.roleSnapshots");
+        if (roleSnapshots != null) {
+            processor.setRoleSnapshots(Boolean.parseBoolean(roleSnapshots.trim()));
+        }
+
+        // Schema files loaded/transformed in parallel (default: available processors)
+        String schemaParallelism = getServletContext().getInitParameter("contextviews.schema.parallelism");
+        if (schemaParallelism != null) {
+            processor.setSchemaParallelism(Integer.parseInt(schemaParallelism.trim()));
+        }
+
+        // Response engine: tree (default) or streaming
+        String engine = getServletContext().getInitParameter("contextviews.engine");
+        streaming = engine != null && "streaming".equalsIgnoreCase(engine.trim());
+        if (streaming) {
+            // Filtered trees are never used by the streaming engine
+            processor.setRoleSnapshots(false);
+        }
+        logger.info("ContextView response engine: {}", streaming ? "streaming" : "tree");
+
+        // Smallest body served gzip-compressed (0: never)
+        String compressionMin = getServletContext().getInitParameter("contextviews.compression.minSize");
+        if (compressionMin != null) {
+            compressionMinSize = Integer.parseInt(compressionMin.trim());
+        }
+
+        // Cache counters endpoint (default: disabled, it has no role check)
+        String stats = getServletContext().getInitParameter("contextviews.stats.enabled");
+        statsEnabled = stats != null && Boolean.parseBoolean(stats.trim());
+
+        // Hot reload through a file watcher (default: enabled); without it
+        // requests check the files every contextviews.cache.checkInterval
+        String watch = getServletContext().getInitParameter("contextviews.watch");
+        if (watch == null || Boolean.parseBoolean(watch.trim())) {
+            String debounce = getServletContext().getInitParameter("contextviews.watch.debounce");
+            long debounceMillis = debounce != null ?
+                Long.parseLong(debounce.trim()) : ConfigurationWatcher.DEFAULT_DEBOUNCE_MILLIS;
+
+            watcher = new ConfigurationWatcher(processor, modulesBasePath, debounceMillis);
+            try {
+                watcher.start();
+            } catch (IOException e) {
+                logger.warn("Cannot watch {}, checking files on requests instead", contextviewsPath, e);
+                watcher = null;
+            }
+        }
     }
 
     @Override
@@ -106,6 +187,14 @@ public class ContextViewServlet extends HttpServlet {
                 // GET /api/contextview/{contextviewKey}
                 handleGetScenario(request, response, pathParts[0]);
 
+            } else if (pathParts.length == 2 && "admin".equals(pathParts[0]) && "stats".equals(pathParts[1])) {
+                // GET /api/contextview/admin/stats (two segments: never a contextview key)
+                if (statsEnabled) {
+                    handleGetStatistics(response);
+                } else {
+                    sendError(response, HttpServletResponse.SC_NOT_FOUND, "Not found");
+                }
+
             } else {
                 sendError(response, HttpServletResponse.SC_BAD_REQUEST,
                     "Invalid URL pattern");
@@ -127,7 +216,7 @@ public class ContextViewServlet extends HttpServlet {
             HttpServletResponse response
     ) throws IOException {
 
-        logger.info("Loading configuration for webapp: {}", appName);
+        logger.debug("Loading configuration for webapp: {}", appName);
 
         // Get parameters
         String role = request.getParameter("role");
@@ -141,19 +230,27 @@ public class ContextViewServlet extends HttpServlet {
         // Build JSON path: json/{appName}.json
         String jsonPath = String.format("json/%s.json", appName);
 
-        // Process configuration
-        JsonNode config = processor.processConfiguration(
-            jsonPath,
-            role,
-            true, // validationTerms - TODO: implement proper validation
-            maintenance
-        );
+        // Keyed on the compiled configuration: the tree is only built on a
+        // cache miss (a new one per request without role snapshots)
+        String activeRole = role;
+        ContextViewProcessor.CompiledConfiguration compiled = processor.getCompiledConfiguration(jsonPath);
+        ResponseCache.CachedResponse cached = responseCache.get("config", null, role, maintenance, compiled, generator -> {
+            if (streaming) {
+                processor.writeConfiguration(compiled, activeRole, true, maintenance, generator);
+            } else {
+                // Process configuration
+                generator.writeTree(processor.processConfiguration(
+                    jsonPath,
+                    activeRole,
+                    true, // validationTerms - TODO: implement proper validation
+                    maintenance
+                ));
+            }
+            return true;
+        });
 
         // Send response
-        response.setStatus(HttpServletResponse.SC_OK);
-        PrintWriter out = response.getWriter();
-        objectMapper.writeValue(out, config);
-        out.flush();
+        sendCached(request, response, cached);
     }
 
     /**
@@ -165,24 +262,41 @@ public class ContextViewServlet extends HttpServlet {
             HttpServletResponse response
     ) throws IOException {
 
-        logger.info("Listing contextviews for webapp: {}", appName);
+        logger.debug("Listing contextviews for webapp: {}", appName);
 
         String role = (String) request.getSession().getAttribute("active_role");
         String jsonPath = String.format("json/%s.json", appName);
 
-        JsonNode config = processor.processConfiguration(jsonPath, role, true, false);
+        ContextViewProcessor.CompiledConfiguration compiled = processor.getCompiledConfiguration(jsonPath);
+        ResponseCache.CachedResponse cached = responseCache.get("list", null, role, false, compiled, generator -> {
+            if (streaming) {
+                return processor.writeContextviews(compiled, role, true, false, generator);
+            }
+            JsonNode config = processor.processConfiguration(jsonPath, role, true, false);
+            if (!config.has("contextviews")) {
+                return false;
+            }
+            generator.writeTree(config.get("contextviews"));
+            return true;
+        });
 
-        if (config.has("contextviews")) {
-            response.setStatus(HttpServletResponse.SC_OK);
-            PrintWriter out = response.getWriter();
-            objectMapper.writeValue(out, config.get("contextviews"));
-            out.flush();
+        if (cached != null) {
+            sendCached(request, response, cached);
         } else {
             sendError(response, HttpServletResponse.SC_NOT_FOUND,
                 "No contextviews found for webapp: " + appName);
         }
     }
 
+    /**
+     * Handle GET /api/contextview/admin/stats
+     * Returns the configuration cache counters
+     */
+    private void handleGetStatistics(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        objectMapper.writeValue(response.getOutputStream(), processor.getCacheStatistics());
+    }
+
     /**
      * Handle GET /api/contextview/{contextviewKey}
      * Returns specific contextview details
@@ -193,36 +307,114 @@ public class ContextViewServlet extends HttpServlet {
             String contextviewKey
     ) throws IOException {
 
-        logger.info("Loading contextview {} for webapp {}", contextviewKey, appName);
+        logger.debug("Loading contextview {} for webapp {}", contextviewKey, appName);
 
         String role = (String) request.getSession().getAttribute("active_role");
         String jsonPath = String.format("json/%s.json", appName);
 
-        JsonNode config = processor.processConfiguration(jsonPath, role, true, false);
-
-        if (config.has("contextviews") &&
-            config.get("contextviews").has(contextviewKey)) {
-
-            response.setStatus(HttpServletResponse.SC_OK);
-            PrintWriter out = response.getWriter();
-            objectMapper.writeValue(out, config.get("contextviews").get(contextviewKey));
-            out.flush();
+        // Only the requested contextview (and its form) is compiled
+        ResponseCache.CachedResponse cached = null;
+        ContextViewProcessor.CompiledContextView view = processor.getCompiledContextView(jsonPath, contextviewKey);
+        if (view != null) {
+            cached = responseCache.get("contextview", contextviewKey, role, false, view, generator -> {
+                if (streaming) {
+                    return processor.writeContextview(view, role, true, false, generator);
+                }
+                JsonNode contextview = processor.processContextView(jsonPath, contextviewKey, role, true, false);
+                if (contextview == null) {
+                    return false;
+                }
+                generator.writeTree(contextview);
+                return true;
+            });
+        }
 
+        if (cached != null) {
+            sendCached(request, response, cached);
         } else {
             sendError(response, HttpServletResponse.SC_NOT_FOUND,
                 "ContextView not found: " + contextviewKey);
         }
     }
 
+    /**
+     * Send a cached, pre-serialized response, or 304 if the client's copy is current
+     */
+    private void sendCached(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            ResponseCache.CachedResponse cached
+    ) throws IOException {
+
+        boolean compressible = compressionMinSize > 0 && cached.getBody().length >= compressionMinSize;
+        boolean gzip = compressible && acceptsGzip(request.getHeader("Accept-Encoding"));
+
+        String etag = gzip ? cached.getGzipEtag() : cached.getEtag();
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "private, no-cache");
+        if (compressible) {
+            response.addHeader("Vary", "Accept-Encoding");
+        }
+
+        if (ResponseCache.matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body;
+        if (gzip) {
+            body = cached.getGzipBody();
+            response.setHeader("Content-Encoding", "gzip");
+        } else {
+            body = cached.getBody();
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentLength(body.length);
+        ServletOutputStream out = response.getOutputStream();
+        out.write(body);
+        out.flush();
+    }
+
+    /**
+     * True if the Accept-Encoding header allows gzip (gzip, x-gzip or *, without q=0)
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean accepted = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] fields = part.split(";");
+            String coding = fields[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean allowed = true;
+            for (int i = 1; i < fields.length; i++) {
+                String param = fields[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (!coding.equals("*")) {
+                return allowed;
+            }
+            accepted = allowed;
+        }
+        return accepted;
+    }
+
     /**
      * Send error response as JSON
      */
     private void sendError(HttpServletResponse response, int statusCode, String message)
             throws IOException {
         response.setStatus(statusCode);
-        PrintWriter out = response.getWriter();
-        objectMapper.writeValue(out, new ErrorResponse(message));
-        out.flush();
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(message));
     }
 
     /**
@@ -238,6 +430,10 @@ public class ContextViewServlet extends HttpServlet {
 
     @Override
     public void destroy() {
+        if (watcher != null) {
+            watcher.close();
+        }
+        processor.shutdown();
         super.destroy();
         logger.info("ContextViewServlet destroyed");
     }
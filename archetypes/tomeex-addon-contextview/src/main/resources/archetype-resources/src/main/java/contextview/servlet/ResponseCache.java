@@ -0,0 +1,273 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.contextview.servlet;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of serialized ContextView API responses.
+ *
+ * Keeps the UTF-8 JSON bytes of each response, keyed by
+ * (endpoint, contextviewKey, role, maintenance), together with a strong ETag
+ * computed when the bytes are built. An entry is reused as long as the
+ * processor keeps returning the same source for that key (the compiled
+ * configuration or contextview), so it is rebuilt automatically when the
+ * configuration is recompiled, and a response built from a per-request tree
+ * (role snapshots off) is still served from the cache.
+ *
+ * The gzip variant of an entry is built the first time a client asks for
+ * it and stored next to the plain bytes, so a cached response is compressed
+ * once, not on every request.
+ *
+ * @author TomEEx Dev Team
+ */
+public class ResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ObjectMapper objectMapper;
+    private final Map<Key, CachedResponse> entries;
+
+    public ResponseCache(ObjectMapper objectMapper) {
+        this(objectMapper, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResponseCache(ObjectMapper objectMapper, int maxEntries) {
+        this.objectMapper = objectMapper;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<Key, CachedResponse>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedResponse> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    /**
+     * Get the serialized response for a node, serializing it only if the
+     * cached entry was built from a different node.
+     *
+     * @param endpoint API endpoint (config, list, contextview)
+     * @param contextviewKey ContextView key (or null)
+     * @param role Active role (or null)
+     * @param maintenance Maintenance mode flag
+     * @param source Node to serialize
+     * @return Serialized bytes and ETag
+     */
+    public CachedResponse get(
+            String endpoint,
+            String contextviewKey,
+            String role,
+            boolean maintenance,
+            JsonNode source
+    ) throws IOException {
+
+        return get(endpoint, contextviewKey, role, maintenance, source, generator -> {
+            generator.writeTree(source);
+            return true;
+        });
+    }
+
+    /**
+     * Get the serialized response produced by a writer, running the writer
+     * only if the cached entry was built from a different source.
+     *
+     * @param endpoint API endpoint (config, list, contextview)
+     * @param contextviewKey ContextView key (or null)
+     * @param role Active role (or null)
+     * @param maintenance Maintenance mode flag
+     * @param source Object the response is derived from, compared by identity
+     * @param writer Writes the response body
+     * @return Serialized bytes and ETag, or null if the writer found nothing to write
+     */
+    public CachedResponse get(
+            String endpoint,
+            String contextviewKey,
+            String role,
+            boolean maintenance,
+            Object source,
+            BodyWriter writer
+    ) throws IOException {
+
+        Key key = new Key(endpoint, contextviewKey, role, maintenance);
+        CachedResponse cached = entries.get(key);
+        if (cached != null && cached.source == source) {
+            return cached;
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (JsonGenerator generator = objectMapper.createGenerator(buffer)) {
+            if (!writer.write(generator)) {
+                return null;
+            }
+        }
+
+        byte[] body = buffer.toByteArray();
+        cached = new CachedResponse(source, body, computeEtag(body));
+        entries.put(key, cached);
+
+        logger.debug("Serialized {} response ({} bytes) for key {}, role {}",
+            endpoint, body.length, contextviewKey, role);
+        return cached;
+    }
+
+    /**
+     * Remove every cached response
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Check an If-None-Match header value against the ETag of the
+     * representation being sent (plain and gzip bodies have different ETags)
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if ("*".equals(tag) || etag.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Strong ETag: quoted hex prefix of the SHA-256 of the body
+     */
+    private static String computeEtag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder etag = new StringBuilder(34).append('"');
+            for (int i = 0; i < 16; i++) {
+                etag.append(HEX[(digest[i] >> 4) & 0xF]).append(HEX[digest[i] & 0xF]);
+            }
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Writes a response body to a generator
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        /**
+         * @return false if there is nothing to write (not found)
+         */
+        boolean write(JsonGenerator generator) throws IOException;
+    }
+
+    /**
+     * Serialized response body with its ETag, and its gzip variant once built
+     */
+    public static class CachedResponse {
+        private final Object source;
+        private final byte[] body;
+        private final String etag;
+        private final String gzipEtag;
+        private volatile byte[] gzipBody;
+
+        CachedResponse(Object source, byte[] body, String etag) {
+            this.source = source;
+            this.body = body;
+            this.etag = etag;
+            this.gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        /**
+         * Body compressed with gzip, built on the first call
+         */
+        public byte[] getGzipBody() {
+            byte[] gzip = gzipBody;
+            if (gzip == null) {
+                synchronized (this) {
+                    gzip = gzipBody;
+                    if (gzip == null) {
+                        ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+                        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+                            out.write(body);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        gzip = buffer.toByteArray();
+                        gzipBody = gzip;
+                    }
+                }
+            }
+            return gzip;
+        }
+
+        /**
+         * ETag of the gzip variant (a different representation of the body)
+         */
+        public String getGzipEtag() {
+            return gzipEtag;
+        }
+    }
+
+    /**
+     * Cache key
+     */
+    private static final class Key {
+        private final String endpoint;
+        private final String contextviewKey;
+        private final String role;
+        private final boolean maintenance;
+
+        Key(String endpoint, String contextviewKey, String role, boolean maintenance) {
+            this.endpoint = endpoint;
+            this.contextviewKey = contextviewKey;
+            this.role = role;
+            this.maintenance = maintenance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return maintenance == other.maintenance &&
+                endpoint.equals(other.endpoint) &&
+                Objects.equals(contextviewKey, other.contextviewKey) &&
+                Objects.equals(role, other.role);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, contextviewKey, role, maintenance);
+        }
+    }
+}
@@ -22,7 +22,7 @@ ON CONFLICT DO NOTHING;
 -- Create indexes for log querying performance
 CREATE INDEX IF NOT EXISTS idx_system_logs_level ON system_logs(log_level);
 CREATE INDEX IF NOT EXISTS idx_system_logs_category ON system_logs(category);
-CREATE INDEX IF NOT EXISTS idx_system_logs_created_at ON system_logs(created_at DESC);
+CREATE INDEX IF NOT EXISTS idx_system_logs_created_at ON system_logs(created_at DESC, id DESC);
 
 -- Display confirmation message
 DO $$
@@ -0,0 +1,497 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import ${package}.json.Json;
+import com.fasterxml.jackson.core.type.TypeReference;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous writer of one insert statement: rows are queued in a bounded
+ * buffer and a background thread writes them with {@link Batch}, once
+ * batchSize rows are waiting or maxDelayMillis after the first one.
+ *
+ * When the buffer is full, {@link ${symbol_pound}offer} fails (or waits up to a
+ * timeout), so callers can push back on producers.
+ *
+ * When a batch fails on bad data (a constraint, a value too long), its rows
+ * are written again one at a time and only the rows the database rejects are
+ * dropped. When it fails because the database cannot be reached, the rows
+ * are appended to the spill file (if any) as JSON lines, synced to disk, and
+ * written again once the database is back, in one transaction so that a
+ * replay failing halfway writes nothing twice. Spilled rows the database
+ * rejects are moved to a ".rejected" file next to it.
+ *
+ * Every row accepted before the writer is closed is written (or spilled)
+ * before it stops.
+ */
+public class AsyncBatchWriter implements AutoCloseable {
+
+    private static final Logger logger = Logger.getLogger(AsyncBatchWriter.class.getName());
+    private static final long RETRY_MILLIS = 5000;
+    // Queued by close() after the last accepted row
+    private static final Object[] STOP = new Object[0];
+
+    private final String source;
+    private final String sql;
+    private final BlockingQueue<Object[]> buffer;
+    private final int batchSize;
+    private final long maxDelayMillis;
+    private final Path spillFile;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    // Offers hold the read lock, close() the write lock: no row is queued after STOP
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private boolean running;
+    private Thread thread;
+    private long nextReplay;
+
+    /**
+     * @param source JNDI name of the data source (as for DatabaseSession)
+     * @param sql Insert statement, one execution per row
+     * @param capacity Rows the buffer holds
+     * @param batchSize Rows written per batch
+     * @param maxDelayMillis Longest time a row waits for its batch to fill
+     * @param spillFile Append-only file for rows that cannot be written, or null
+     */
+    public AsyncBatchWriter(String source, String sql, int capacity, int batchSize,
+                            long maxDelayMillis, Path spillFile) {
+        this.source = source;
+        this.sql = sql;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        this.spillFile = spillFile;
+    }
+
+    public void start() {
+        lock.writeLock().lock();
+        try {
+            if (running) {
+                return;
+            }
+            running = true;
+            thread = new Thread(this::run, "async-batch-writer");
+            thread.start();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Queue a row without waiting
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(Object... row) {
+        lock.readLock().lock();
+        try {
+            return accept(running && buffer.offer(row));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Queue a row, waiting up to timeoutMillis for room in the buffer
+     * (close() waits for it too)
+     *
+     * @return false if the buffer is still full
+     */
+    public boolean offer(long timeoutMillis, Object... row) throws InterruptedException {
+        lock.readLock().lock();
+        try {
+            return accept(running && buffer.offer(row, timeoutMillis, TimeUnit.MILLISECONDS));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean accept(boolean queued) {
+        if (!queued) {
+            rejected.incrementAndGet();
+        }
+        return queued;
+    }
+
+    /**
+     * Stop accepting rows, write the queued ones and stop the writer thread
+     */
+    @Override
+    public void close() {
+        Thread writer;
+        lock.writeLock().lock();
+        try {
+            if (!running) {
+                return;
+            }
+            running = false;
+            writer = thread;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Not interrupted: an interrupt while spilling closes the file channel
+        try {
+            buffer.put(STOP);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueued() {
+        return buffer.size();
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writer thread
+     */
+    private void run() {
+        List<Object[]> rows = new ArrayList<>(batchSize);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Object[] first = buffer.poll(RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    replaySpill();
+                    continue;
+                }
+
+                // Fill the batch until it is full, the first row waited long
+                // enough or STOP (always the last row) is reached
+                rows.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                while (rows.size() < batchSize && rows.get(rows.size() - 1) != STOP) {
+                    if (buffer.drainTo(rows, batchSize - rows.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    Object[] row = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (row == null) {
+                        break;
+                    }
+                    rows.add(row);
+                }
+            } catch (InterruptedException e) {
+                // Only close() stops the writer: the rows are written below
+            }
+
+            if (!rows.isEmpty() && rows.get(rows.size() - 1) == STOP) {
+                rows.remove(rows.size() - 1);
+                stopping = true;
+            }
+            if (!rows.isEmpty()) {
+                writeOrSpill(rows);
+                rows.clear();
+            }
+        }
+    }
+
+    private void writeOrSpill(List<Object[]> rows) {
+        try {
+            write(rows);
+        } catch (Exception e) {
+            if (isConnectionFailure(e)) {
+                logger.log(Level.WARNING, "Cannot write " + rows.size() + " rows", e);
+                spill(rows);
+                return;
+            }
+
+            // Bad data in the batch: keep every row the database accepts
+            logger.log(Level.WARNING, "Batch of " + rows.size() + " rows rejected, writing them one by one", e);
+            try {
+                writeEach(rows);
+            } catch (Exception retry) {
+                logger.log(Level.WARNING, "Cannot write " + rows.size() + " rows", retry);
+                spill(rows);
+                return;
+            }
+        }
+        replaySpill();
+    }
+
+    private void write(List<Object[]> rows) throws Exception {
+        try (DatabaseSession session = new DatabaseSession(source)) {
+            session.open();
+            try (Batch batch = session.batch(sql, batchSize, false)) {
+                for (Object[] row : rows) {
+                    batch.add(row);
+                }
+                batch.execute();
+            }
+        }
+        written.addAndGet(rows.size());
+    }
+
+    /**
+     * Write rows one at a time in one transaction; the rows the database
+     * rejects are dropped
+     */
+    private void writeEach(List<Object[]> rows) throws Exception {
+        int rejectedRows = 0;
+        try (DatabaseSession session = new DatabaseSession(source)) {
+            session.open();
+            session.begin();
+            for (Object[] row : rows) {
+                if (!insert(session, row)) {
+                    rejectedRows++;
+                }
+            }
+            session.commit();
+        }
+        written.addAndGet(rows.size() - rejectedRows);
+        dropped.addAndGet(rejectedRows);
+    }
+
+    /**
+     * Insert one row inside the session's transaction, rolling it back to a
+     * savepoint if the database rejects it
+     *
+     * @return false if the row was rejected
+     * @throws Exception if the database cannot be reached (the row is not the cause)
+     */
+    private boolean insert(DatabaseSession session, Object[] row) throws Exception {
+        Connection connection = session.connection();
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            session.query(sql, row);
+            return true;
+        } catch (SQLException e) {
+            if (isConnectionFailure(e)) {
+                throw e;
+            }
+            logger.log(Level.WARNING, "Row rejected by the database: " + Arrays.toString(row), e);
+            connection.rollback(savepoint);
+            return false;
+        }
+    }
+
+    /**
+     * True if the database could not be reached (SQLState class 08 or a
+     * connection exception), as opposed to rejecting the data
+     */
+    static boolean isConnectionFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientConnectionException
+                    || cause instanceof SQLNonTransientConnectionException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Append rows that could not be written to the spill file
+     */
+    private void spill(List<Object[]> rows) {
+        if (spillFile == null) {
+            dropped.addAndGet(rows.size());
+            return;
+        }
+
+        try {
+            List<String> lines = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                lines.add(Json.encode(row));
+            }
+            append(spillFile, lines);
+            spilled.addAndGet(rows.size());
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot spill " + rows.size() + " rows to " + spillFile, e);
+            dropped.addAndGet(rows.size());
+        }
+        nextReplay = System.currentTimeMillis() + RETRY_MILLIS;
+    }
+
+    /**
+     * Append lines to a file and sync it to disk
+     */
+    private static void append(Path file, List<String> lines) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Write the spilled rows back in one transaction, at most once per retry
+     * interval while the database is failing
+     */
+    private void replaySpill() {
+        if (spillFile == null || System.currentTimeMillis() < nextReplay) {
+            return;
+        }
+
+        Path replaying = spillFile.resolveSibling(spillFile.getFileName() + ".replay");
+        if (!Files.exists(spillFile) && !Files.exists(replaying)) {
+            return;
+        }
+
+        try {
+            // A replay file left by a failed replay is written again first
+            if (!Files.exists(replaying)) {
+                Files.move(spillFile, replaying, StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            List<String> rejectedLines;
+            try {
+                rejectedLines = replay(replaying);
+            } catch (Exception e) {
+                if (isConnectionFailure(e)) {
+                    throw e;
+                }
+                logger.log(Level.WARNING, "Spilled rows rejected, writing them one by one", e);
+                rejectedLines = replayEach(replaying);
+            }
+
+            if (!rejectedLines.isEmpty()) {
+                Path rejectedFile = spillFile.resolveSibling(spillFile.getFileName() + ".rejected");
+                append(rejectedFile, rejectedLines);
+                dropped.addAndGet(rejectedLines.size());
+                logger.warning(rejectedLines.size() + " spilled rows rejected, moved to " + rejectedFile);
+            }
+            Files.delete(replaying);
+            logger.info("Spilled rows written from " + spillFile);
+        } catch (Exception e) {
+            // Nothing was committed (closing the session rolls back): the
+            // whole replay file is written again next time
+            logger.log(Level.WARNING, "Cannot write spilled rows from " + spillFile, e);
+            nextReplay = System.currentTimeMillis() + RETRY_MILLIS;
+        }
+    }
+
+    /**
+     * Write a replay file as batches of one transaction
+     *
+     * @return Rejected lines (none: any failure is thrown)
+     */
+    private List<String> replay(Path file) throws Exception {
+        long rows;
+        try (DatabaseSession session = new DatabaseSession(source)) {
+            session.open();
+            session.begin();
+            try (Batch batch = session.batch(sql, batchSize, false);
+                 BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isEmpty()) {
+                        batch.add(decode(line));
+                    }
+                }
+                batch.execute();
+                rows = batch.getRowCount();
+            }
+            session.commit();
+        }
+        written.addAndGet(rows);
+        return List.of();
+    }
+
+    /**
+     * Write a replay file one row at a time in one transaction
+     *
+     * @return Lines the database rejected (or that are not valid rows)
+     */
+    private List<String> replayEach(Path file) throws Exception {
+        List<String> rejectedLines = new ArrayList<>();
+        long rows = 0;
+        try (DatabaseSession session = new DatabaseSession(source);
+             BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            session.open();
+            session.begin();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Object[] row;
+                try {
+                    row = decode(line);
+                } catch (IOException e) {
+                    // Line cut short by a crash while spilling
+                    rejectedLines.add(line);
+                    continue;
+                }
+                if (insert(session, row)) {
+                    rows++;
+                } else {
+                    rejectedLines.add(line);
+                }
+            }
+            session.commit();
+        }
+        written.addAndGet(rows);
+        return rejectedLines;
+    }
+
+    private static Object[] decode(String line) throws IOException {
+        return Json.decode(line, new TypeReference<List<Object>>() {}).toArray();
+    }
+}
@@ -0,0 +1,154 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Batched executions of one prepared statement (addBatch/executeBatch).
+ *
+ * Rows are sent to the database every batchSize rows and on
+ * {@link ${symbol_pound}execute()}. Outside a transaction each round trip is committed
+ * once, instead of once per row; inside a transaction (begin/commit on the
+ * session) nothing is committed by the batch.
+ *
+ * Generated keys are collected only for batches started with returnKeys:
+ * they are kept for every flush, and make PostgreSQL return the inserted
+ * rows.
+ *
+ * Throughput depends on the driver rewriting batches into multi-row
+ * statements: reWriteBatchedInserts=true (PostgreSQL) and useBulkStmts=true
+ * (MariaDB) are set on the JDBC URL in context.xml.
+ */
+public class Batch implements AutoCloseable {
+
+    public static final int DEFAULT_SIZE = 500;
+
+    private final Connection connection;
+    private final String sql;
+    private final PreparedStatement statement;
+    private final int batchSize;
+    // Null unless the batch returns generated keys
+    private final List<Long> generatedKeys;
+    private int pending;
+    private long rowCount;
+
+    Batch(Connection connection, String sql, int batchSize, boolean returnKeys) throws SQLException {
+        this.connection = connection;
+        this.sql = sql;
+        this.statement = returnKeys
+            ? connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+            : connection.prepareStatement(sql);
+        this.batchSize = Math.max(1, batchSize);
+        this.generatedKeys = returnKeys ? new ArrayList<>() : null;
+    }
+
+    /**
+     * Add one execution, sending the pending rows if the batch is full
+     */
+    public Batch add(Object... params) throws Exception {
+        for (int i = 0; i < params.length; i++) {
+            statement.setObject(i + 1, params[i]);
+        }
+        statement.addBatch();
+
+        if (++pending >= batchSize) {
+            flush();
+        }
+        return this;
+    }
+
+    /**
+     * Send the pending rows
+     */
+    public void flush() throws Exception {
+        if (pending == 0) {
+            return;
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+
+        long start = QueryMetrics.start();
+        long rows = 0;
+        try {
+            for (int count : statement.executeBatch()) {
+                // SUCCESS_NO_INFO (rewritten batches) still means one row
+                rows += count >= 0 ? count : 1;
+            }
+            rowCount += rows;
+            if (generatedKeys != null) {
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        generatedKeys.add(keys.getLong(1));
+                    }
+                }
+            }
+            if (autoCommit) {
+                connection.commit();
+            }
+            QueryMetrics.record(sql, start, rows, false);
+        } catch (SQLException e) {
+            QueryMetrics.record(sql, start, rows, true);
+            if (autoCommit) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+            }
+            throw e;
+        } finally {
+            // Cleanup failures must not replace the exception thrown above
+            pending = 0;
+            try {
+                statement.clearBatch();
+            } catch (SQLException e) {
+                // Statement unusable, closed with the batch
+            }
+            if (autoCommit) {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    // Connection unusable, discarded by the pool
+                }
+            }
+        }
+    }
+
+    /**
+     * Send the pending rows and return the keys generated so far, in
+     * insertion order (empty unless the batch was started with returnKeys).
+     * Drivers that only report the last key of a batch (SQLite) return
+     * fewer keys than rows.
+     */
+    public List<Long> execute() throws Exception {
+        flush();
+        return generatedKeys != null ? generatedKeys : List.of();
+    }
+
+    /**
+     * Rows affected so far
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Statement already unusable, nothing to release
+        }
+    }
+}
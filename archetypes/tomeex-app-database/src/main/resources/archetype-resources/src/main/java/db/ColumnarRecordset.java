@@ -0,0 +1,480 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import dev.tomeex.tools.Database;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Query result stored by column: column names are kept once and values in
+ * one typed array per column (long[], int[], double[], String[]) with a null
+ * bitmap, instead of a HashMap per row. Repeated strings of a column share
+ * one instance.
+ *
+ * Integer columns start as int[] and are widened to long[] the first time a
+ * value does not fit (SQLite reports every integer column as INTEGER).
+ * Other types (timestamps, decimals, binaries...) are kept as objects.
+ *
+ * Rows are read with the typed getters, or as {@link Row} maps for code
+ * written against Database.Record; iterating the recordset (and serializing
+ * it with Jackson) goes through Row views without copying. A Row lists its
+ * columns in the order of a Database.Record holding the same values, so
+ * the recordset serializes to the same JSON as the Recordset of the query.
+ */
+public class ColumnarRecordset implements Iterable<ColumnarRecordset.Row> {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAX_DISTINCT_STRINGS = 4096;
+
+    private final String[] names;
+    // Filled like a Database.Record: same iteration order, last column wins
+    private final Map<String, Integer> indexes;
+    // Column indexes in the iteration order of indexes
+    private final int[] order;
+    private final Column[] columns;
+    private int size;
+
+    /**
+     * Read every row of the ResultSet (the ResultSet is not closed)
+     */
+    public static ColumnarRecordset read(ResultSet resultSet) throws SQLException {
+        ColumnarRecordset recordset = new ColumnarRecordset(resultSet.getMetaData());
+        while (resultSet.next()) {
+            recordset.addRow(resultSet);
+        }
+        recordset.trimToSize();
+        return recordset;
+    }
+
+    private ColumnarRecordset(ResultSetMetaData metaData) throws SQLException {
+        int count = metaData.getColumnCount();
+        names = new String[count];
+        indexes = new HashMap<>();
+        columns = new Column[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = metaData.getColumnName(i + 1);
+            indexes.put(names[i], i);
+            columns[i] = new Column(kindOf(metaData.getColumnType(i + 1)));
+        }
+        order = indexes.values().stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void addRow(ResultSet resultSet) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(resultSet, i + 1, size);
+        }
+        size++;
+    }
+
+    private void trimToSize() {
+        for (Column column : columns) {
+            column.resize(size);
+            column.distinct = null;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    public String getColumnName(int column) {
+        return names[column];
+    }
+
+    /**
+     * Index of a column, -1 if the result has no such column (the last one
+     * if several columns have the name, as in a Database.Record)
+     */
+    public int getColumnIndex(String name) {
+        Integer index = indexes.get(name);
+        return index != null ? index : -1;
+    }
+
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return columns[column].nulls.get(row);
+    }
+
+    /**
+     * Value of an integer column (0 for NULL)
+     */
+    public long getLong(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        switch (c.kind) {
+            case INT:
+                return c.ints != null ? c.ints[row] : c.longs[row];
+            case LONG:
+                return c.longs[row];
+            case DOUBLE:
+                return (long) c.doubles[row];
+            default:
+                Object value = c.get(row);
+                return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+    }
+
+    public int getInt(int row, int column) {
+        return (int) getLong(row, column);
+    }
+
+    /**
+     * Value of a floating point column (0 for NULL)
+     */
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        Column c = columns[column];
+        if (c.kind == Kind.DOUBLE) {
+            return c.doubles[row];
+        }
+        Object value = c.get(row);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    public String getString(int row, int column) {
+        checkRow(row);
+        Object value = columns[column].get(row);
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Value boxed as the JDBC driver would return it (null for NULL)
+     */
+    public Object get(int row, int column) {
+        checkRow(row);
+        return columns[column].get(row);
+    }
+
+    public Object get(int row, String column) {
+        int index = getColumnIndex(column);
+        return index >= 0 ? get(row, index) : null;
+    }
+
+    /**
+     * Map view of a row
+     */
+    public Row row(int row) {
+        checkRow(row);
+        return new Row(row);
+    }
+
+    /**
+     * Copy of a row as a Database.Record
+     */
+    public Database.Record getRecord(int row) {
+        checkRow(row);
+        Database.Record record = new Database.Record();
+        for (int i = 0; i < columns.length; i++) {
+            record.put(names[i], columns[i].get(row));
+        }
+        return record;
+    }
+
+    /**
+     * List view of the rows, which is what Jackson serializes
+     */
+    @JsonValue
+    public List<Row> rows() {
+        return new AbstractList<Row>() {
+            @Override
+            public Row get(int index) {
+                return row(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Row next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return new Row(next++);
+            }
+        };
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    private static Kind kindOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return Kind.INT;
+            case Types.BIGINT:
+                return Kind.LONG;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return Kind.DOUBLE;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return Kind.STRING;
+            default:
+                return Kind.OBJECT;
+        }
+    }
+
+    private enum Kind { INT, LONG, DOUBLE, STRING, OBJECT }
+
+    /**
+     * Values of one column
+     */
+    private static final class Column {
+
+        final Kind kind;
+        final BitSet nulls = new BitSet();
+        int[] ints;
+        long[] longs;
+        double[] doubles;
+        String[] strings;
+        Object[] objects;
+        Map<String, String> distinct;
+
+        Column(Kind kind) {
+            this.kind = kind;
+            switch (kind) {
+                case INT:
+                    ints = new int[INITIAL_CAPACITY];
+                    break;
+                case LONG:
+                    longs = new long[INITIAL_CAPACITY];
+                    break;
+                case DOUBLE:
+                    doubles = new double[INITIAL_CAPACITY];
+                    break;
+                case STRING:
+                    strings = new String[INITIAL_CAPACITY];
+                    distinct = new HashMap<>();
+                    break;
+                default:
+                    objects = new Object[INITIAL_CAPACITY];
+            }
+        }
+
+        void read(ResultSet resultSet, int index, int row) throws SQLException {
+            if (row == capacity()) {
+                resize(row * 2);
+            }
+
+            switch (kind) {
+                case INT:
+                    long value = resultSet.getLong(index);
+                    if (ints != null && value != (int) value) {
+                        widen();
+                    }
+                    if (ints != null) {
+                        ints[row] = (int) value;
+                    } else {
+                        longs[row] = value;
+                    }
+                    break;
+                case LONG:
+                    longs[row] = resultSet.getLong(index);
+                    break;
+                case DOUBLE:
+                    doubles[row] = resultSet.getDouble(index);
+                    break;
+                case STRING:
+                    strings[row] = share(resultSet.getString(index));
+                    break;
+                default:
+                    objects[row] = resultSet.getObject(index);
+            }
+
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        Object get(int row) {
+            if (nulls.get(row)) {
+                return null;
+            }
+            switch (kind) {
+                case INT:
+                    return ints != null ? (Object) ints[row] : (Object) longs[row];
+                case LONG:
+                    return longs[row];
+                case DOUBLE:
+                    return doubles[row];
+                case STRING:
+                    return strings[row];
+                default:
+                    return objects[row];
+            }
+        }
+
+        int capacity() {
+            switch (kind) {
+                case INT:
+                    return ints != null ? ints.length : longs.length;
+                case LONG:
+                    return longs.length;
+                case DOUBLE:
+                    return doubles.length;
+                case STRING:
+                    return strings.length;
+                default:
+                    return objects.length;
+            }
+        }
+
+        void resize(int capacity) {
+            if (ints != null) {
+                ints = Arrays.copyOf(ints, capacity);
+            }
+            if (longs != null) {
+                longs = Arrays.copyOf(longs, capacity);
+            }
+            if (doubles != null) {
+                doubles = Arrays.copyOf(doubles, capacity);
+            }
+            if (strings != null) {
+                strings = Arrays.copyOf(strings, capacity);
+            }
+            if (objects != null) {
+                objects = Arrays.copyOf(objects, capacity);
+            }
+        }
+
+        /**
+         * Switch an int column to long[] storage
+         */
+        private void widen() {
+            longs = new long[ints.length];
+            for (int i = 0; i < ints.length; i++) {
+                longs[i] = ints[i];
+            }
+            ints = null;
+        }
+
+        /**
+         * Same instance for repeated values, while the column has few
+         * distinct values
+         */
+        private String share(String value) {
+            if (value == null || distinct == null) {
+                return value;
+            }
+            String shared = distinct.putIfAbsent(value, value);
+            if (shared != null) {
+                return shared;
+            }
+            if (distinct.size() > MAX_DISTINCT_STRINGS) {
+                distinct = null;
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Read-only map view of a row, keyed by column name
+     */
+    public final class Row extends AbstractMap<String, Object> {
+
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        public int getIndex() {
+            return row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer index = indexes.get(key);
+            return index != null ? columns[index].get(row) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return indexes.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return order.length;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Object>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return order.length;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String, Object>> iterator() {
+                    return new Iterator<Map.Entry<String, Object>>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < order.length;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Object> next() {
+                            if (next >= order.length) {
+                                throw new NoSuchElementException();
+                            }
+                            int c = order[next++];
+                            return new SimpleImmutableEntry<>(names[c], columns[c].get(row));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
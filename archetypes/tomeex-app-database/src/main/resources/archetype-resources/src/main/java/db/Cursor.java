@@ -0,0 +1,159 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import dev.tomeex.tools.Database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Forward-only rows of a query, read one at a time (same API as
+ * Database.Cursor). Closing the cursor closes the ResultSet and the
+ * statement (when the cursor owns one), and ends the transaction opened for
+ * the cursor.
+ */
+public class Cursor implements AutoCloseable {
+
+    private final ResultSet resultSet;
+    private final PreparedStatement statement;
+    private final Runnable onClose;
+    private final String sql;
+    private final long start;
+    private long rowCount;
+    private boolean failed;
+    private boolean closed;
+
+    Cursor(ResultSet resultSet, PreparedStatement statement) {
+        this(resultSet, statement, null);
+    }
+
+    Cursor(ResultSet resultSet, PreparedStatement statement, Runnable onClose) {
+        this(resultSet, statement, onClose, null, 0);
+    }
+
+    /**
+     * @param sql Statement recorded in {@link QueryMetrics} on close (null: not timed)
+     * @param start Start of the execution, from {@link QueryMetrics${symbol_pound}start()}
+     */
+    Cursor(ResultSet resultSet, PreparedStatement statement, Runnable onClose, String sql, long start) {
+        this.resultSet = resultSet;
+        this.statement = statement;
+        this.onClose = onClose;
+        this.sql = sql;
+        this.start = start;
+    }
+
+    public boolean next() throws Exception {
+        try {
+            if (resultSet.next()) {
+                rowCount++;
+                return true;
+            }
+            return false;
+        } catch (SQLException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    public Object get(String column) throws Exception {
+        return resultSet.getObject(column);
+    }
+
+    public Database.Record getRow() throws Exception {
+        Database.Record record = new Database.Record();
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        for (int i = 1; i <= columnCount; i++) {
+            record.put(metaData.getColumnName(i), resultSet.getObject(i));
+        }
+        return record;
+    }
+
+    /**
+     * Current row mapped to an object
+     */
+    public <T> T getRow(RowMapper<T> mapper) throws Exception {
+        return mapper.map(resultSet);
+    }
+
+    /**
+     * Remaining rows mapped to objects
+     */
+    public <T> List<T> map(RowMapper<T> mapper) throws Exception {
+        List<T> rows = new ArrayList<>();
+        while (next()) {
+            rows.add(mapper.map(resultSet));
+        }
+        return rows;
+    }
+
+    /**
+     * Remaining rows bound to a record class, see {@link RecordMapper}
+     */
+    public <T> List<T> map(Class<T> type) throws Exception {
+        return map(mapper(type));
+    }
+
+    /**
+     * Mapper of a record class bound to the columns of this cursor, for
+     * reading rows one at a time with {@link ${symbol_pound}getRow(RowMapper)}
+     */
+    public <T> RowMapper<T> mapper(Class<T> type) throws Exception {
+        return RecordMapper.of(type).bind(resultSet.getMetaData());
+    }
+
+    /**
+     * Rows read so far
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Count rows read directly from the ResultSet
+     */
+    void countRows(long rows) {
+        rowCount += rows;
+    }
+
+    /**
+     * ResultSet behind the cursor, for readers that need typed getters
+     */
+    public ResultSet getResultSet() {
+        return resultSet;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            resultSet.close();
+        } catch (SQLException e) {
+            // ResultSet already unusable, nothing to release
+        }
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Statement already unusable, nothing to release
+            }
+        }
+        if (onClose != null) {
+            onClose.run();
+        }
+        if (sql != null) {
+            QueryMetrics.record(sql, start, rowCount, failed);
+        }
+    }
+}
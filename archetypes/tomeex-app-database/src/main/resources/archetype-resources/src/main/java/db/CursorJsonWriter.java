@@ -0,0 +1,160 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the rows of a cursor as a JSON array of objects while reading them,
+ * so memory use does not depend on the number of rows (with a fetch size,
+ * see {@link DatabaseSession${symbol_pound}cursor(CursorOptions, String, Object...)}).
+ *
+ * Each row is written like a Database.Record serialized by the ObjectMapper:
+ * keys are the column names, in the order of the Record's HashMap (the last
+ * column for a repeated name), numbers and strings are written directly and
+ * other values (timestamps, decimals...) go through the mapper.
+ */
+public class CursorJsonWriter {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter valueWriter;
+
+    public CursorJsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        // Flushing the response after every timestamp would defeat the buffer
+        this.valueWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Write every remaining row of the cursor to the stream (UTF-8); the
+     * stream is flushed but not closed
+     *
+     * @return Rows written
+     */
+    public long write(Cursor cursor, OutputStream out) throws IOException, SQLException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            return write(cursor, generator, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Write up to maxRows rows of the cursor as a JSON array, see
+     * {@link ${symbol_pound}write(ResultSet, JsonGenerator, long)}
+     *
+     * @return Rows written
+     */
+    public long write(Cursor cursor, JsonGenerator generator, long maxRows) throws IOException, SQLException {
+        long rows = write(cursor.getResultSet(), generator, maxRows);
+        cursor.countRows(rows);
+        return rows;
+    }
+
+    /**
+     * UTF-8 generator on the stream, which does not close the stream
+     */
+    public JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    /**
+     * Write every remaining row of the ResultSet as a JSON array
+     *
+     * @return Rows written
+     */
+    public long write(ResultSet resultSet, JsonGenerator generator) throws IOException, SQLException {
+        return write(resultSet, generator, Long.MAX_VALUE);
+    }
+
+    /**
+     * Write at most maxRows rows of the ResultSet as a JSON array. The
+     * ResultSet is left on the last row written, so the caller can read its
+     * keys and check for more rows with next().
+     *
+     * @return Rows written
+     */
+    public long write(ResultSet resultSet, JsonGenerator generator, long maxRows) throws IOException, SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = new String[columnCount + 1];
+        int[] types = new int[columnCount + 1];
+        Map<String, Integer> record = new HashMap<>();
+        for (int i = 1; i <= columnCount; i++) {
+            names[i] = metaData.getColumnName(i);
+            types[i] = metaData.getColumnType(i);
+            record.put(names[i], i);
+        }
+        int[] order = record.values().stream().mapToInt(Integer::intValue).toArray();
+
+        long rows = 0;
+        generator.writeStartArray();
+        while (rows < maxRows && resultSet.next()) {
+            generator.writeStartObject();
+            for (int i : order) {
+                generator.writeFieldName(names[i]);
+                writeValue(generator, resultSet, i, types[i]);
+            }
+            generator.writeEndObject();
+            rows++;
+        }
+        generator.writeEndArray();
+        generator.flush();
+        return rows;
+    }
+
+    private void writeValue(JsonGenerator generator, ResultSet resultSet, int index, int type)
+            throws IOException, SQLException {
+        switch (type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                long longValue = resultSet.getLong(index);
+                if (resultSet.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(longValue);
+                }
+                break;
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                double doubleValue = resultSet.getDouble(index);
+                if (resultSet.wasNull()) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(doubleValue);
+                }
+                break;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                generator.writeString(resultSet.getString(index));
+                break;
+            default:
+                Object value = resultSet.getObject(index);
+                if (value == null) {
+                    generator.writeNull();
+                } else {
+                    valueWriter.writeValue(generator, value);
+                }
+        }
+    }
+}
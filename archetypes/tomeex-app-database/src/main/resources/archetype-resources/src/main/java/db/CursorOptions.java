@@ -0,0 +1,51 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+/**
+ * Options of {@link DatabaseSession${symbol_pound}cursor(CursorOptions, String, Object...)}.
+ *
+ * <pre>
+ * db.cursor(CursorOptions.defaults().fetchSize(1000), sql, params)
+ * </pre>
+ */
+public class CursorOptions {
+
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private boolean readOnly = true;
+
+    /**
+     * Fetch size of DEFAULT_FETCH_SIZE rows, read-only transaction
+     */
+    public static CursorOptions defaults() {
+        return new CursorOptions();
+    }
+
+    /**
+     * Rows per round trip (0 lets the driver load the whole result)
+     */
+    public CursorOptions fetchSize(int fetchSize) {
+        this.fetchSize = Math.max(0, fetchSize);
+        return this;
+    }
+
+    /**
+     * Run the cursor in a read-only transaction when the session is not
+     * already in a transaction
+     */
+    public CursorOptions readOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+}
@@ -0,0 +1,455 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import dev.tomeex.tools.Database;
+
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * JDBC session on a webapp DataSource, looked up like dev.tomeex.tools.Database
+ * (java:comp/env/ + source), with the same select/query/cursor API plus the
+ * operations that need direct access to the connection, such as batched
+ * writes.
+ *
+ * Within a request, {@link ${symbol_pound}shared} returns the session of the request
+ * scope (see {@link SessionScope}), so every DAO call of the request runs on
+ * one pooled connection, borrowed on first use and released at the end.
+ *
+ * Statements are prepared once per SQL text and reused for the whole
+ * session (see {@link StatementCache}); cursors get a statement of their own,
+ * closed with the cursor, so other statements and evictions from the cache
+ * cannot close their results. Across sessions, reuse comes from the
+ * pool: poolPreparedStatements in context.xml keeps the statements of every
+ * pooled connection open.
+ *
+ * <pre>
+ * try (DatabaseSession session = new DatabaseSession("jdbc/MainDB")) {
+ *     session.open();
+ *     try (Batch batch = session.batch("INSERT INTO t (a, b) VALUES (?, ?)", Batch.DEFAULT_SIZE, true)) {
+ *         for (Item item : items) {
+ *             batch.add(item.a, item.b);
+ *         }
+ *         List&lt;Long&gt; ids = batch.execute();
+ *     }
+ * }
+ * </pre>
+ */
+public class DatabaseSession implements AutoCloseable {
+
+    private final String source;
+    private final int statementCacheSize;
+    private final int prepareThreshold;
+    private final boolean scoped;
+    private Connection connection;
+    private StatementCache statements;
+    private String product;
+
+    public DatabaseSession(String source) {
+        this(source, StatementCache.DEFAULT_SIZE, 0);
+    }
+
+    /**
+     * @param statementCacheSize Prepared statements kept open by the session (0 disables the cache)
+     * @param prepareThreshold Executions before PostgreSQL prepares a statement on
+     *                         the server (1 always, 0 keeps the driver setting)
+     */
+    public DatabaseSession(String source, int statementCacheSize, int prepareThreshold) {
+        this(source, statementCacheSize, prepareThreshold, false);
+    }
+
+    /**
+     * Session owned by a {@link SessionScope}
+     */
+    DatabaseSession(String source, boolean scoped) {
+        this(source, StatementCache.DEFAULT_SIZE, 0, scoped);
+    }
+
+    private DatabaseSession(String source, int statementCacheSize, int prepareThreshold, boolean scoped) {
+        this.source = source;
+        this.statementCacheSize = statementCacheSize;
+        this.prepareThreshold = prepareThreshold;
+        this.scoped = scoped;
+    }
+
+    /**
+     * Session of the current request scope for the source, or a new session
+     * outside a scope. Use it like any session (open, then close): inside a
+     * scope open() borrows the connection only once and close() leaves it to
+     * the end of the scope.
+     */
+    public static DatabaseSession shared(String source) {
+        DatabaseSession session = SessionScope.session(source);
+        return session != null ? session : new DatabaseSession(source);
+    }
+
+    /**
+     * Borrow a connection from the pool (nothing to do if already open)
+     */
+    public void open() throws Exception {
+        if (connection != null) {
+            return;
+        }
+        InitialContext context = new InitialContext();
+        try {
+            DataSource dataSource = (DataSource) context.lookup("java:comp/env/" + source);
+            long start = QueryMetrics.start();
+            try {
+                connection = dataSource.getConnection();
+            } finally {
+                QueryMetrics.recordBorrow(start, connection == null);
+            }
+            statements = new StatementCache(connection, statementCacheSize, prepareThreshold);
+        } finally {
+            context.close();
+        }
+    }
+
+    /**
+     * Release the connection, unless the session belongs to a scope
+     */
+    @Override
+    public void close() {
+        if (!scoped) {
+            release();
+        }
+    }
+
+    /**
+     * Release the connection, rolling back a transaction left open
+     */
+    void release() {
+        if (connection != null) {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                // Connection unusable, discarded by the pool
+            }
+        }
+        if (statements != null) {
+            statements.close();
+            statements = null;
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Connection already unusable, nothing to release
+            }
+            connection = null;
+        }
+    }
+
+    public boolean connected() {
+        return connection != null;
+    }
+
+    public void begin() throws Exception {
+        connection().setAutoCommit(false);
+    }
+
+    public void commit() throws Exception {
+        connection().commit();
+        connection().setAutoCommit(true);
+    }
+
+    public void rollback() throws Exception {
+        connection().rollback();
+        connection().setAutoCommit(true);
+    }
+
+    /**
+     * Run a query and load every row
+     */
+    public Database.Recordset select(String sql, Object... params) throws Exception {
+        return execute(sql, params, resultSet -> {
+            Database.Recordset recordset = new Database.Recordset();
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            while (resultSet.next()) {
+                Database.Record record = new Database.Record();
+                for (int i = 1; i <= columnCount; i++) {
+                    record.put(metaData.getColumnName(i), resultSet.getObject(i));
+                }
+                recordset.add(record);
+            }
+            return recordset;
+        }, List::size);
+    }
+
+    /**
+     * Run a query and load every row into a {@link ColumnarRecordset}, which
+     * takes a fraction of the memory of a Recordset on large results
+     */
+    public ColumnarRecordset selectColumnar(String sql, Object... params) throws Exception {
+        return execute(sql, params, ColumnarRecordset::read, ColumnarRecordset::size);
+    }
+
+    /**
+     * Run a query and map every row with a {@link RowMapper}
+     */
+    public <T> List<T> select(RowMapper<T> mapper, String sql, Object... params) throws Exception {
+        return execute(sql, params, resultSet -> {
+            List<T> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                rows.add(mapper.map(resultSet));
+            }
+            return rows;
+        }, List::size);
+    }
+
+    /**
+     * Run a query and bind every row to a record class, see {@link RecordMapper}
+     */
+    public <T> List<T> select(Class<T> type, String sql, Object... params) throws Exception {
+        return execute(sql, params, resultSet -> {
+            RowMapper<T> mapper = RecordMapper.of(type).bind(resultSet.getMetaData());
+            List<T> rows = new ArrayList<>();
+            while (resultSet.next()) {
+                rows.add(mapper.map(resultSet));
+            }
+            return rows;
+        }, List::size);
+    }
+
+    /**
+     * Run an insert/update/delete
+     *
+     * @return Affected rows
+     */
+    public int query(String sql, Object... params) throws Exception {
+        long start = QueryMetrics.start();
+        int rows = 0;
+        boolean failed = true;
+        try {
+            PreparedStatement statement = prepare(sql, params);
+            try {
+                rows = statement.executeUpdate();
+            } finally {
+                release(statement);
+            }
+            failed = false;
+            return rows;
+        } finally {
+            QueryMetrics.record(sql, start, rows, failed);
+        }
+    }
+
+    /**
+     * Run a query and read its rows one at a time with the default
+     * {@link CursorOptions}; the cursor must be closed
+     */
+    public Cursor cursor(String sql, Object... params) throws Exception {
+        return cursor(CursorOptions.defaults(), sql, params);
+    }
+
+    /**
+     * Run a query and read its rows one at a time, streamed from the
+     * database instead of loaded at once; the cursor must be closed.
+     *
+     * The statement is forward-only and read-only, with the fetch size of
+     * the options; it is not taken from the statement cache and is closed
+     * with the cursor. Outside a transaction the cursor runs in its own one
+     * (read-only unless disabled), ended when the cursor is closed; on
+     * PostgreSQL the transaction is always used, since the driver only
+     * honours the fetch size with autocommit off. MariaDB streams with a
+     * fetch size, but no other statement can run on the session until the
+     * cursor is closed. SQLite always steps through the result.
+     */
+    public Cursor cursor(CursorOptions options, String sql, Object... params) throws Exception {
+        Connection connection = connection();
+        boolean transaction = connection.getAutoCommit()
+            && (options.isReadOnly() || getProduct().contains("postgres"));
+        // sqlite-jdbc cannot change the read-only flag of an open connection
+        boolean readOnly = transaction && options.isReadOnly() && !getProduct().contains("sqlite");
+
+        if (readOnly) {
+            connection.setReadOnly(true);
+        }
+        if (transaction) {
+            connection.setAutoCommit(false);
+        }
+
+        long start = QueryMetrics.start();
+        PreparedStatement statement = null;
+        try {
+            statement = getStatementCache().prepareUncached(sql);
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+            statement.setFetchSize(options.getFetchSize());
+            ResultSet resultSet = statement.executeQuery();
+            return new Cursor(resultSet, statement,
+                transaction ? () -> endCursorTransaction(connection, readOnly) : null, sql, start);
+        } catch (Exception e) {
+            QueryMetrics.record(sql, start, 0, true);
+            if (statement != null) {
+                try {
+                    statement.close();
+                } catch (SQLException ex) {
+                    // Keep the original exception
+                }
+            }
+            if (transaction) {
+                endCursorTransaction(connection, readOnly);
+            }
+            throw e;
+        }
+    }
+
+    private static void endCursorTransaction(Connection connection, boolean readOnly) {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ex) {
+                // Connection unusable, discarded by the pool
+            }
+        }
+        try {
+            connection.setAutoCommit(true);
+            if (readOnly) {
+                connection.setReadOnly(false);
+            }
+        } catch (SQLException e) {
+            // Connection unusable, discarded by the pool
+        }
+    }
+
+    /**
+     * Id generated by the last insert on this connection
+     */
+    public long lastInsertId() throws Exception {
+        String product = getProduct();
+        String sql;
+        if (product.contains("postgres")) {
+            sql = "SELECT LASTVAL()";
+        } else if (product.contains("mysql") || product.contains("mariadb")) {
+            sql = "SELECT LAST_INSERT_ID()";
+        } else if (product.contains("sqlite")) {
+            sql = "SELECT last_insert_rowid()";
+        } else {
+            throw new Exception("lastInsertId not supported for " + product);
+        }
+
+        PreparedStatement statement = prepare(sql);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } finally {
+            release(statement);
+        }
+    }
+
+    /**
+     * Start a batch of executions of one statement, flushed every
+     * {@link Batch${symbol_pound}DEFAULT_SIZE} rows, without generated keys
+     */
+    public Batch batch(String sql) throws Exception {
+        return batch(sql, Batch.DEFAULT_SIZE, false);
+    }
+
+    /**
+     * Start a batch of executions of one statement, without generated keys
+     *
+     * @param batchSize Rows sent to the database per round trip
+     */
+    public Batch batch(String sql, int batchSize) throws Exception {
+        return batch(sql, batchSize, false);
+    }
+
+    /**
+     * Start a batch of executions of one statement
+     *
+     * @param batchSize Rows sent to the database per round trip
+     * @param returnKeys Collect the generated keys (on PostgreSQL the
+     *        driver appends RETURNING * to the statement)
+     */
+    public Batch batch(String sql, int batchSize, boolean returnKeys) throws Exception {
+        return new Batch(connection(), sql, batchSize, returnKeys);
+    }
+
+    /**
+     * Database product name in lower case (postgresql, mariadb, sqlite...)
+     */
+    public String getProduct() throws Exception {
+        if (product == null) {
+            product = connection().getMetaData().getDatabaseProductName().toLowerCase();
+        }
+        return product;
+    }
+
+    /**
+     * Statement cache of the open connection
+     */
+    public StatementCache getStatementCache() throws Exception {
+        connection();
+        return statements;
+    }
+
+    /**
+     * Run a query and read its whole result, timed in {@link QueryMetrics}
+     */
+    private <T> T execute(String sql, Object[] params, ResultReader<T> reader, ToIntFunction<T> rowCount) throws Exception {
+        long start = QueryMetrics.start();
+        T result = null;
+        try {
+            PreparedStatement statement = prepare(sql, params);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                result = reader.read(resultSet);
+            } finally {
+                release(statement);
+            }
+            return result;
+        } finally {
+            QueryMetrics.record(sql, start, result != null ? rowCount.applyAsInt(result) : 0, result == null);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResultReader<T> {
+        T read(ResultSet resultSet) throws Exception;
+    }
+
+    private PreparedStatement prepare(String sql, Object... params) throws Exception {
+        PreparedStatement statement = getStatementCache().prepare(sql);
+        try {
+            for (int i = 0; i < params.length; i++) {
+                statement.setObject(i + 1, params[i]);
+            }
+        } catch (SQLException e) {
+            release(statement);
+            throw e;
+        }
+        return statement;
+    }
+
+    /**
+     * Close a statement that is not owned by the cache
+     */
+    private void release(PreparedStatement statement) throws SQLException {
+        if (!statements.isCaching()) {
+            statement.close();
+        }
+    }
+
+    Connection connection() throws Exception {
+        if (connection == null) {
+            throw new Exception("Connection not available");
+        }
+        return connection;
+    }
+}
@@ -0,0 +1,133 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Database health, checked with Connection.isValid on a pooled connection
+ * (no query) and cached for a TTL: callers within the TTL get the last
+ * result without touching the pool. When the result expires one caller
+ * runs the check while the others keep getting the previous result.
+ */
+public class HealthCheck {
+
+    public static final long DEFAULT_TTL_MILLIS = 5000;
+    public static final int DEFAULT_TIMEOUT_SECONDS = 2;
+
+    private final String source;
+    private final long ttlMillis;
+    private final int timeoutSeconds;
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private volatile DataSource dataSource;
+    private volatile Status status;
+
+    public HealthCheck(String source) {
+        this(source, DEFAULT_TTL_MILLIS, DEFAULT_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * @param ttlMillis How long a result is reused
+     * @param timeoutSeconds Timeout of Connection.isValid
+     */
+    public HealthCheck(String source, long ttlMillis, int timeoutSeconds) {
+        this.source = source;
+        this.ttlMillis = ttlMillis;
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Last result, checked again if older than the TTL
+     */
+    public Status check() {
+        Status current = status;
+        if (current != null && System.currentTimeMillis() - current.checkedAt < ttlMillis) {
+            return current;
+        }
+        if (!checking.compareAndSet(false, true)) {
+            // Check already running: previous result, or a check of our own the first time
+            return current != null ? current : probe();
+        }
+        try {
+            current = probe();
+            status = current;
+            return current;
+        } finally {
+            checking.set(false);
+        }
+    }
+
+    public boolean isHealthy() {
+        return check().isHealthy();
+    }
+
+    private Status probe() {
+        long start = System.nanoTime();
+        try (Connection connection = dataSource().getConnection()) {
+            boolean valid = connection.isValid(timeoutSeconds);
+            return new Status(valid, valid ? "Connection valid" : "Connection not valid", elapsedMillis(start));
+        } catch (Exception e) {
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            return new Status(false, message, elapsedMillis(start));
+        }
+    }
+
+    private DataSource dataSource() throws Exception {
+        DataSource current = dataSource;
+        if (current == null) {
+            InitialContext context = new InitialContext();
+            try {
+                current = (DataSource) context.lookup("java:comp/env/" + source);
+                dataSource = current;
+            } finally {
+                context.close();
+            }
+        }
+        return current;
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * Result of a check
+     */
+    public static final class Status {
+
+        private final boolean healthy;
+        private final String message;
+        private final long latencyMillis;
+        private final long checkedAt;
+
+        Status(boolean healthy, String message, long latencyMillis) {
+            this.healthy = healthy;
+            this.message = message;
+            this.latencyMillis = latencyMillis;
+            this.checkedAt = System.currentTimeMillis();
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        /**
+         * Time of the check (epoch ms)
+         */
+        public long getCheckedAt() {
+            return checkedAt;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination token: the sort value and id of the last row of
+ * a page, from which the next page starts. The sort value keeps its SQL type
+ * (timestamp, or text for SQLite dates) so it can be bound back as is.
+ *
+ * Timestamps are kept as LocalDateTime (ISO text in the token) and bound
+ * through JDBC 4.2: TIMESTAMP columns without time zone never go through
+ * the JVM default zone, where a DST gap or overlap would shift the value.
+ */
+public final class PageToken {
+
+    private final Object sortValue;
+    private final long id;
+
+    public PageToken(Object sortValue, long id) {
+        if (sortValue instanceof Timestamp) {
+            sortValue = ((Timestamp) sortValue).toLocalDateTime();
+        }
+        this.sortValue = sortValue;
+        this.id = id;
+    }
+
+    /**
+     * Value to bind for the sort column (LocalDateTime or String)
+     */
+    public Object getSortValue() {
+        return sortValue;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String kind = sortValue instanceof LocalDateTime ? "t" : "s";
+        String text = kind + "|" + sortValue + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PageToken decode(String token) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+
+        int first = text.indexOf('|');
+        int last = text.lastIndexOf('|');
+        if (first != 1 || last <= first) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+
+        String value = text.substring(first + 1, last);
+        try {
+            long id = Long.parseLong(text.substring(last + 1));
+            switch (text.charAt(0)) {
+                case 't':
+                    return new PageToken(LocalDateTime.parse(value), id);
+                case 's':
+                    return new PageToken(value, id);
+                default:
+                    throw new IllegalArgumentException("Invalid page token");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid page token");
+        }
+    }
+}
@@ -0,0 +1,454 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Timing of the SQL run through {@link DatabaseSession} (select, query,
+ * cursor, batch) and of connection borrows from the pool, shared by the
+ * whole webapp.
+ *
+ * Statements are keyed by their normalized SQL (literals replaced by ?, IN
+ * lists collapsed, whitespace folded), with counts, rows, errors and a
+ * latency histogram kept in LongAdders, so recording never takes a
+ * lock. A cursor is timed from its execution to its close, including the
+ * time spent reading its rows.
+ *
+ * Statements slower than the slow-query threshold are logged (without their
+ * parameters) on the {@code ${package}.db.QueryMetrics} logger.
+ */
+public final class QueryMetrics {
+
+    public static final long DEFAULT_SLOW_QUERY_MILLIS = 1000;
+
+    /**
+     * Upper bounds (ms) of the histogram buckets; the last bucket counts
+     * everything slower
+     */
+    static final long[] BUCKETS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final Logger logger = Logger.getLogger(QueryMetrics.class.getName());
+    private static final int MAX_STATEMENTS = 1000;
+    private static final int MAX_SQL_LENGTH = 2000;
+    private static final String OTHER = "(other statements)";
+
+    private static final ConcurrentHashMap<String, String> normalized = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Timer> statements = new ConcurrentHashMap<>();
+    private static final Timer borrow = new Timer("(connection borrow)");
+
+    private static volatile boolean enabled = true;
+    private static volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_QUERY_MILLIS);
+
+    private QueryMetrics() {
+    }
+
+    public static void setEnabled(boolean enabled) {
+        QueryMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param millis Statements taking longer are logged (0 disables the log)
+     */
+    public static void setSlowQueryThreshold(long millis) {
+        slowQueryNanos = millis > 0 ? TimeUnit.MILLISECONDS.toNanos(millis) : Long.MAX_VALUE;
+    }
+
+    public static long getSlowQueryThreshold() {
+        return slowQueryNanos == Long.MAX_VALUE ? 0 : TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+    }
+
+    /**
+     * Start of a timed operation (0 when metrics are disabled)
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Record a statement started at {@link ${symbol_pound}start()}
+     */
+    static void record(String sql, long start, long rows, boolean failed) {
+        if (start == 0) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        String key = normalize(sql);
+        timer(key).record(nanos, rows, failed);
+
+        if (nanos >= slowQueryNanos) {
+            logger.warning(String.format("Slow query: %d ms, %d rows%s: %s",
+                TimeUnit.NANOSECONDS.toMillis(nanos), rows, failed ? ", failed" : "", key));
+        }
+    }
+
+    /**
+     * Record the wait for a pool connection started at {@link ${symbol_pound}start()}
+     */
+    static void recordBorrow(long start, boolean failed) {
+        if (start != 0) {
+            borrow.record(System.nanoTime() - start, 0, failed);
+        }
+    }
+
+    /**
+     * Current counters, statements sorted by total time (slowest first)
+     */
+    public static Snapshot snapshot() {
+        List<TimerSnapshot> list = new ArrayList<>(statements.size());
+        for (Timer timer : statements.values()) {
+            list.add(timer.snapshot());
+        }
+        list.sort(Comparator.comparingDouble(TimerSnapshot::getTotalMillis).reversed());
+        return new Snapshot(borrow.snapshot(), list);
+    }
+
+    /**
+     * Drop every counter
+     */
+    public static void reset() {
+        statements.clear();
+        borrow.reset();
+    }
+
+    private static Timer timer(String key) {
+        Timer timer = statements.get(key);
+        if (timer != null) {
+            return timer;
+        }
+        if (statements.size() >= MAX_STATEMENTS) {
+            // Unbounded distinct SQL (built with literals): stop adding keys
+            key = OTHER;
+        }
+        return statements.computeIfAbsent(key, Timer::new);
+    }
+
+    /**
+     * Normalized form of a statement, cached for the first MAX_STATEMENTS
+     * distinct SQL texts
+     */
+    static String normalize(String sql) {
+        String key = normalized.get(sql);
+        if (key == null) {
+            key = normalizeText(sql);
+            if (normalized.size() < MAX_STATEMENTS) {
+                normalized.put(sql, key);
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Replace string and numeric literals with ?, collapse lists of
+     * placeholders such as IN (?, ?, ?) to (?) and fold whitespace
+     */
+    static String normalizeText(String sql) {
+        StringBuilder out = new StringBuilder(Math.min(sql.length(), MAX_SQL_LENGTH));
+        int length = sql.length();
+        int i = 0;
+        while (i < length && out.length() < MAX_SQL_LENGTH) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                // String literal, '' is an escaped quote
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                appendPlaceholder(out);
+            } else if (Character.isDigit(c) && !isIdentifierPart(out)) {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendPlaceholder(out);
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (out.length() > 0 && i < length) {
+                    out.append(' ');
+                }
+            } else if (c == '?') {
+                i++;
+                appendPlaceholder(out);
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Append ?, unless it continues a list of placeholders in IN (?, ?)
+     */
+    private static void appendPlaceholder(StringBuilder out) {
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (end >= 2 && out.charAt(end - 1) == ',' && lastNonSpace(out, end - 1) == '?' && inList(out)) {
+            out.setLength(end - 1);
+            trimTrailingSpace(out);
+            return;
+        }
+        out.append('?');
+    }
+
+    /**
+     * True if the last open parenthesis follows IN
+     */
+    private static boolean inList(StringBuilder out) {
+        int open = out.lastIndexOf("(");
+        if (open < 0 || out.indexOf(")", open) >= 0) {
+            return false;
+        }
+        int end = open;
+        while (end > 0 && out.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end >= 2
+            && Character.toUpperCase(out.charAt(end - 2)) == 'I'
+            && Character.toUpperCase(out.charAt(end - 1)) == 'N'
+            && (end == 2 || !Character.isLetterOrDigit(out.charAt(end - 3)));
+    }
+
+    private static char lastNonSpace(StringBuilder out, int end) {
+        while (end > 0 && out.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end > 0 ? out.charAt(end - 1) : 0;
+    }
+
+    private static void trimTrailingSpace(StringBuilder out) {
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == ' ') {
+            end--;
+        }
+        out.setLength(end);
+    }
+
+    private static boolean isIdentifierPart(StringBuilder out) {
+        if (out.length() == 0) {
+            return false;
+        }
+        char last = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+
+    /**
+     * Lock-free counters of one statement
+     */
+    private static final class Timer {
+
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder[] histogram = new LongAdder[BUCKETS.length + 1];
+
+        Timer(String sql) {
+            this.sql = sql;
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] = new LongAdder();
+            }
+        }
+
+        void record(long nanos, long rowCount, boolean failed) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+            if (failed) {
+                errors.increment();
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int bucket = 0;
+            while (bucket < BUCKETS.length && millis >= BUCKETS[bucket]) {
+                bucket++;
+            }
+            histogram[bucket].increment();
+        }
+
+        void reset() {
+            count.reset();
+            errors.reset();
+            rows.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+            for (LongAdder bucket : histogram) {
+                bucket.reset();
+            }
+        }
+
+        TimerSnapshot snapshot() {
+            long[] counts = new long[histogram.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram[i].sum();
+            }
+            return new TimerSnapshot(sql, count.sum(), errors.sum(), rows.sum(),
+                totalNanos.sum(), maxNanos.get(), counts);
+        }
+    }
+
+    /**
+     * Point-in-time copy of the metrics, serializable with Jackson
+     */
+    public static final class Snapshot {
+
+        private final TimerSnapshot connectionBorrow;
+        private final List<TimerSnapshot> statements;
+
+        Snapshot(TimerSnapshot connectionBorrow, List<TimerSnapshot> statements) {
+            this.connectionBorrow = connectionBorrow;
+            this.statements = Collections.unmodifiableList(statements);
+        }
+
+        public TimerSnapshot getConnectionBorrow() {
+            return connectionBorrow;
+        }
+
+        public List<TimerSnapshot> getStatements() {
+            return statements;
+        }
+
+        /**
+         * Upper bounds (ms) of the histogram buckets
+         */
+        public long[] getBuckets() {
+            return BUCKETS.clone();
+        }
+
+        public long getSlowQueryThreshold() {
+            return QueryMetrics.getSlowQueryThreshold();
+        }
+
+        public long getStatementCacheHits() {
+            return StatementCache.getHits();
+        }
+
+        public long getStatementCacheMisses() {
+            return StatementCache.getMisses();
+        }
+
+        public long getStatementCacheEvictions() {
+            return StatementCache.getEvictions();
+        }
+    }
+
+    /**
+     * Counters of one statement (or of connection borrows). Percentiles are
+     * the upper bound of the histogram bucket they fall in.
+     */
+    public static final class TimerSnapshot {
+
+        private final String sql;
+        private final long count;
+        private final long errors;
+        private final long rows;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] histogram;
+
+        TimerSnapshot(String sql, long count, long errors, long rows, long totalNanos, long maxNanos, long[] histogram) {
+            this.sql = sql;
+            this.count = count;
+            this.errors = errors;
+            this.rows = rows;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.histogram = histogram;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public double getTotalMillis() {
+            return totalNanos / 1_000_000.0;
+        }
+
+        public double getMeanMillis() {
+            return count == 0 ? 0 : totalNanos / 1_000_000.0 / count;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos / 1_000_000.0;
+        }
+
+        public long getP50Millis() {
+            return percentile(0.50);
+        }
+
+        public long getP95Millis() {
+            return percentile(0.95);
+        }
+
+        public long getP99Millis() {
+            return percentile(0.99);
+        }
+
+        /**
+         * Counts per bucket of {@link Snapshot${symbol_pound}getBuckets()}, plus the
+         * slower ones
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        private long percentile(double p) {
+            long total = 0;
+            for (long bucket : histogram) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * p);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return BUCKETS[i];
+                }
+            }
+            return (long) Math.ceil(getMaxMillis());
+        }
+    }
+}
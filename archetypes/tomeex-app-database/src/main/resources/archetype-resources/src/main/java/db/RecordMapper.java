@@ -0,0 +1,247 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.RecordComponent;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Binds rows to a Java record class through its canonical constructor.
+ *
+ * Record components are matched to columns by name, ignoring case and
+ * underscores (created_at fills createdAt). Column indexes and value
+ * converters are resolved once per result set by {@link ${symbol_pound}bind}; the
+ * resulting RowMapper reads each column with its typed getter and calls the
+ * constructor through a method handle, so no map or reflection is involved
+ * per row.
+ *
+ * <pre>
+ * record Log(long id, String logLevel, String message, LocalDateTime createdAt) {}
+ *
+ * List&lt;Log&gt; logs = db.select(Log.class, "SELECT * FROM system_logs WHERE log_level = ?", "ERROR");
+ * </pre>
+ */
+public final class RecordMapper<T> {
+
+    private static final Map<Class<?>, RecordMapper<?>> mappers = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final String[] names;
+    private final Class<?>[] types;
+    private final MethodHandle constructor;
+
+    /**
+     * Mapper of a record class (cached)
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RecordMapper<T> of(Class<T> type) {
+        return (RecordMapper<T>) mappers.computeIfAbsent(type, RecordMapper::new);
+    }
+
+    private RecordMapper(Class<T> type) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(type.getName() + " is not a record");
+        }
+
+        RecordComponent[] components = type.getRecordComponents();
+        this.type = type;
+        this.names = new String[components.length];
+        this.types = new Class<?>[components.length];
+        for (int i = 0; i < components.length; i++) {
+            names[i] = components[i].getName();
+            types[i] = components[i].getType();
+        }
+
+        try {
+            Constructor<T> canonical = type.getDeclaredConstructor(types);
+            canonical.setAccessible(true);
+            this.constructor = MethodHandles.lookup().unreflectConstructor(canonical)
+                .asSpreader(Object[].class, components.length)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot access the constructor of " + type.getName(), e);
+        }
+    }
+
+    /**
+     * RowMapper for the columns of a result set
+     *
+     * @throws SQLException if a record component has no matching column
+     */
+    public RowMapper<T> bind(ResultSetMetaData metaData) throws SQLException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = metaData.getColumnCount(); i >= 1; i--) {
+            columns.put(normalize(metaData.getColumnLabel(i)), i);
+        }
+
+        int[] indexes = new int[names.length];
+        Reader[] readers = new Reader[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Integer index = columns.get(normalize(names[i]));
+            if (index == null) {
+                throw new SQLException("No column for " + type.getSimpleName() + "." + names[i]);
+            }
+            indexes[i] = index;
+            readers[i] = readerOf(types[i]);
+        }
+
+        // Arguments array reused for every row: a bound mapper reads one result set
+        Object[] args = new Object[names.length];
+        return resultSet -> {
+            for (int i = 0; i < readers.length; i++) {
+                args[i] = readers[i].read(resultSet, indexes[i]);
+            }
+            return newInstance(args);
+        };
+    }
+
+    private T newInstance(Object[] args) throws SQLException {
+        try {
+            return type.cast((Object) constructor.invokeExact(args));
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new SQLException("Cannot create " + type.getSimpleName(), e);
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Reads a column as the Java type of a record component
+     */
+    @FunctionalInterface
+    private interface Reader {
+        Object read(ResultSet resultSet, int index) throws SQLException;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Reader readerOf(Class<?> type) {
+        if (type == long.class) {
+            return ResultSet::getLong;
+        }
+        if (type == int.class) {
+            return ResultSet::getInt;
+        }
+        if (type == double.class) {
+            return ResultSet::getDouble;
+        }
+        if (type == boolean.class) {
+            return ResultSet::getBoolean;
+        }
+        if (type == float.class) {
+            return ResultSet::getFloat;
+        }
+        if (type == short.class) {
+            return ResultSet::getShort;
+        }
+        if (type == Long.class) {
+            return (rs, i) -> {
+                long value = rs.getLong(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Integer.class) {
+            return (rs, i) -> {
+                int value = rs.getInt(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Double.class) {
+            return (rs, i) -> {
+                double value = rs.getDouble(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == Boolean.class) {
+            return (rs, i) -> {
+                boolean value = rs.getBoolean(i);
+                return rs.wasNull() ? null : value;
+            };
+        }
+        if (type == String.class) {
+            return ResultSet::getString;
+        }
+        if (type == BigDecimal.class) {
+            return ResultSet::getBigDecimal;
+        }
+        if (type == byte[].class) {
+            return ResultSet::getBytes;
+        }
+        if (type == LocalDateTime.class) {
+            return (rs, i) -> toLocalDateTime(rs.getObject(i));
+        }
+        if (type == LocalDate.class) {
+            return (rs, i) -> {
+                Object value = rs.getObject(i);
+                if (value instanceof java.sql.Date) {
+                    return ((java.sql.Date) value).toLocalDate();
+                }
+                if (value instanceof LocalDate) {
+                    return value;
+                }
+                LocalDateTime dateTime = toLocalDateTime(value);
+                return dateTime != null ? dateTime.toLocalDate() : null;
+            };
+        }
+        if (type == Instant.class) {
+            return (rs, i) -> {
+                Object value = rs.getObject(i);
+                if (value instanceof Timestamp) {
+                    return ((Timestamp) value).toInstant();
+                }
+                if (value instanceof OffsetDateTime) {
+                    return ((OffsetDateTime) value).toInstant();
+                }
+                return value != null ? rs.getObject(i, Instant.class) : null;
+            };
+        }
+        if (type.isEnum()) {
+            return (rs, i) -> {
+                String value = rs.getString(i);
+                return value != null ? Enum.valueOf((Class<? extends Enum>) type, value) : null;
+            };
+        }
+        return (rs, i) -> rs.getObject(i, type);
+    }
+
+    /**
+     * Timestamp (PostgreSQL, MariaDB), LocalDateTime or text (SQLite's
+     * CURRENT_TIMESTAMP) as a LocalDateTime
+     */
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value == null || value instanceof LocalDateTime) {
+            return (LocalDateTime) value;
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime();
+        }
+        if (value instanceof OffsetDateTime) {
+            return ((OffsetDateTime) value).toLocalDateTime();
+        }
+        String text = value.toString();
+        if (text.length() == 10) {
+            return LocalDate.parse(text).atStartOfDay();
+        }
+        return LocalDateTime.parse(text.replace(' ', 'T'));
+    }
+}
@@ -0,0 +1,24 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a ResultSet to an object, reading columns with
+ * the typed getters:
+ *
+ * <pre>
+ * RowMapper&lt;Log&gt; mapper = rs -&gt; new Log(rs.getLong(1), rs.getString(2));
+ * List&lt;Log&gt; logs = db.select(mapper, "SELECT id, message FROM system_logs");
+ * </pre>
+ *
+ * Java records can be bound by column name instead, see {@link RecordMapper}.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    T map(ResultSet resultSet) throws SQLException;
+}
@@ -0,0 +1,70 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sessions shared by every {@link DatabaseSession${symbol_pound}shared} call of the
+ * current thread, one per data source, between {@link ${symbol_pound}begin} and
+ * {@link ${symbol_pound}end} (the request, see DatabaseSessionFilter).
+ *
+ * A scoped session borrows its connection the first time it is opened and
+ * keeps it until the end of the scope: close() on a scoped session does
+ * nothing, and a transaction left open is rolled back when the scope ends.
+ *
+ * The scope is bound to the thread: work handed to other threads (async
+ * servlets, executors) opens its own sessions.
+ */
+public final class SessionScope {
+
+    private static final ThreadLocal<Map<String, DatabaseSession>> sessions = new ThreadLocal<>();
+
+    private SessionScope() {
+    }
+
+    /**
+     * Start a scope on the current thread
+     *
+     * @return false if a scope is already active (nested dispatch), which
+     *         the caller must then not end
+     */
+    public static boolean begin() {
+        if (sessions.get() != null) {
+            return false;
+        }
+        sessions.set(new HashMap<>(2));
+        return true;
+    }
+
+    /**
+     * End the scope of the current thread, releasing its connections
+     */
+    public static void end() {
+        Map<String, DatabaseSession> scoped = sessions.get();
+        sessions.remove();
+        if (scoped != null) {
+            for (DatabaseSession session : scoped.values()) {
+                session.release();
+            }
+        }
+    }
+
+    public static boolean isActive() {
+        return sessions.get() != null;
+    }
+
+    /**
+     * Session of the scope for the data source, created unopened on first
+     * use (null when no scope is active)
+     */
+    static DatabaseSession session(String source) {
+        Map<String, DatabaseSession> scoped = sessions.get();
+        if (scoped == null) {
+            return null;
+        }
+        return scoped.computeIfAbsent(source, key -> new DatabaseSession(key, true));
+    }
+}
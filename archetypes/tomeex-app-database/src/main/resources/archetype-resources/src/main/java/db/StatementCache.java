@@ -0,0 +1,159 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prepared statements of one connection, keyed by SQL text and bounded in
+ * LRU order: the least recently used statement is closed when the cache is
+ * full. All statements are closed with the cache, before the connection goes
+ * back to the pool.
+ *
+ * Hit/miss/eviction counters are shared by every cache of the webapp.
+ *
+ * A cached statement is reused by the next execution of the same SQL, which
+ * closes the ResultSet of the previous one, so statements whose results stay
+ * open (cursors) are prepared with {@link ${symbol_pound}prepareUncached} instead.
+ */
+public class StatementCache implements AutoCloseable {
+
+    public static final int DEFAULT_SIZE = 32;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private final Connection connection;
+    private final int maxSize;
+    private final int prepareThreshold;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    /**
+     * @param maxSize Statements kept open (0 disables caching)
+     * @param prepareThreshold PostgreSQL executions before a statement is
+     *                         prepared on the server (0 keeps the driver setting)
+     */
+    StatementCache(Connection connection, int maxSize, int prepareThreshold) {
+        this.connection = connection;
+        this.maxSize = Math.max(0, maxSize);
+        this.prepareThreshold = prepareThreshold;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.maxSize) {
+                    return false;
+                }
+                evictions.incrementAndGet();
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Cached statement for the SQL, prepared on a miss. Parameters of a
+     * cached statement are cleared.
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement statement = statements.get(sql);
+        if (statement != null && !statement.isClosed()) {
+            hits.incrementAndGet();
+            statement.clearParameters();
+            return statement;
+        }
+
+        misses.incrementAndGet();
+        statement = prepareUncached(sql);
+        if (maxSize > 0) {
+            statements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * New statement for the SQL, with the settings of cached ones but owned
+     * by the caller, which must close it
+     */
+    PreparedStatement prepareUncached(String sql) throws SQLException {
+        PreparedStatement statement =
+            connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        if (prepareThreshold > 0) {
+            try {
+                setPrepareThreshold(statement, prepareThreshold);
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                throw e;
+            }
+        }
+        return statement;
+    }
+
+    /**
+     * True if statements returned by {@link ${symbol_pound}prepare} are owned by the
+     * cache (and must not be closed by the caller)
+     */
+    boolean isCaching() {
+        return maxSize > 0;
+    }
+
+    public int size() {
+        return statements.size();
+    }
+
+    @Override
+    public void close() {
+        Iterator<PreparedStatement> iterator = statements.values().iterator();
+        while (iterator.hasNext()) {
+            closeQuietly(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Turn on server-side prepared statements on the PostgreSQL driver
+     * (PGStatement.setPrepareThreshold), looked up by reflection so the
+     * class compiles whatever driver the webapp uses. Other drivers are left
+     * alone.
+     */
+    private static void setPrepareThreshold(PreparedStatement statement, int threshold) throws SQLException {
+        try {
+            Class<?> pgStatement = Class.forName("org.postgresql.PGStatement");
+            if (statement.isWrapperFor(pgStatement)) {
+                Method method = pgStatement.getMethod("setPrepareThreshold", int.class);
+                method.invoke(statement.unwrap(pgStatement), threshold);
+            }
+        } catch (ReflectiveOperationException e) {
+            // Not PostgreSQL
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // Statement already unusable, nothing to release
+        }
+    }
+}
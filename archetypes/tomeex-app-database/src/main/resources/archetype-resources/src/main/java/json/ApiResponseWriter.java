@@ -0,0 +1,73 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.json;
+
+import ${package}.db.Cursor;
+import ${package}.db.CursorJsonWriter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dev.tomeex.tools.ApiResponse;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Writes an ApiResponse envelope ({"err", "code", "log", "out"}, like
+ * ApiResponse.toJson) straight to the response output stream through one
+ * JsonGenerator: the payload is serialized after the envelope fields
+ * without building the whole document as a String first.
+ *
+ * A {@link Cursor} as out is written as the array of its remaining rows
+ * while reading them (see CursorJsonWriter), so list endpoints can stream
+ * large results inside the envelope; the cursor is not closed.
+ *
+ * <pre>
+ * try (Cursor rows = db.cursor(CursorOptions.defaults().fetchSize(500), sql)) {
+ *     ApiResponseWriter.write(ApiResponse.success(rows), response);
+ * }
+ * </pre>
+ */
+public final class ApiResponseWriter {
+
+    private static final CursorJsonWriter cursorWriter = new CursorJsonWriter(Json.mapper());
+
+    private ApiResponseWriter() {
+    }
+
+    /**
+     * Write the envelope as the response body (application/json, UTF-8).
+     * The HTTP status is left to the caller.
+     *
+     * @throws SQLException Reading a Cursor payload failed; the response is
+     *         already committed when this happens after the first rows
+     */
+    public static void write(ApiResponse apiResponse, HttpServletResponse response) throws IOException, SQLException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        try (JsonGenerator generator = cursorWriter.createGenerator(response.getOutputStream())) {
+            write(apiResponse, generator);
+        }
+    }
+
+    /**
+     * Write the envelope as a JSON object on the generator
+     */
+    public static void write(ApiResponse apiResponse, JsonGenerator generator) throws IOException, SQLException {
+        generator.writeStartObject();
+        generator.writeBooleanField("err", apiResponse.isErr());
+        generator.writeNumberField("code", apiResponse.getCode());
+        generator.writeStringField("log", apiResponse.getLog());
+        generator.writeFieldName("out");
+        Object out = apiResponse.getOut();
+        if (out == null) {
+            generator.writeNull();
+        } else if (out instanceof Cursor) {
+            cursorWriter.write((Cursor) out, generator, Long.MAX_VALUE);
+        } else {
+            Json.writer(out).writeValue(generator, out);
+        }
+        generator.writeEndObject();
+        generator.flush();
+    }
+}
@@ -0,0 +1,121 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON of the webapp, with the encode/decode API of dev.tomeex.tools.JSON
+ * plus byte and stream variants, so responses are serialized straight to
+ * the output stream and requests parsed from the input stream, without an
+ * intermediate String.
+ *
+ * Every call goes through one static ObjectMapper, and the ObjectReader or
+ * ObjectWriter of each type is built once and cached (both are immutable
+ * and thread-safe). write leaves the stream open; read consumes the stream
+ * and closes it.
+ *
+ * The mapper registers JavaTimeModule and Blackbird, which replaces the
+ * reflective getters, setters and constructors of POJOs with generated
+ * lambdas; values are not flushed one by one (the stream is flushed when
+ * the write ends) and beans without properties serialize as {}.
+ *
+ * <pre>
+ * Json.write(response.getOutputStream(), recordset);
+ * Order order = Json.read(request.getInputStream(), Order.class);
+ * List&lt;Order&gt; orders = Json.read(in, new TypeReference&lt;List&lt;Order&gt;&gt;() {});
+ * </pre>
+ */
+public final class Json {
+
+    private static final ObjectMapper mapper = JsonMapper.builder()
+        .addModule(new JavaTimeModule())
+        .addModule(new BlackbirdModule())
+        .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+        .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+        .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+        .build();
+
+    private static final ConcurrentHashMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Class<?>, ObjectReader> readers = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Type, ObjectReader> typeReaders = new ConcurrentHashMap<>();
+
+    private Json() {
+    }
+
+    /**
+     * The shared ObjectMapper, for APIs that take one (CursorJsonWriter,
+     * RequestBody). It must not be reconfigured.
+     */
+    public static ObjectMapper mapper() {
+        return mapper;
+    }
+
+    public static String encode(Object value) throws IOException {
+        return writer(value).writeValueAsString(value);
+    }
+
+    public static byte[] encodeToBytes(Object value) throws IOException {
+        return writer(value).writeValueAsBytes(value);
+    }
+
+    /**
+     * Serialize to the stream as UTF-8 (the stream is not closed)
+     */
+    public static void write(OutputStream out, Object value) throws IOException {
+        writer(value).writeValue(out, value);
+    }
+
+    public static <T> T decode(String json, Class<T> type) throws IOException {
+        return reader(type).readValue(json);
+    }
+
+    public static <T> T decode(String json, TypeReference<T> type) throws IOException {
+        return reader(type).readValue(json);
+    }
+
+    public static <T> T decode(byte[] json, Class<T> type) throws IOException {
+        return reader(type).readValue(json);
+    }
+
+    public static <T> T read(InputStream in, Class<T> type) throws IOException {
+        return reader(type).readValue(in);
+    }
+
+    public static <T> T read(InputStream in, TypeReference<T> type) throws IOException {
+        return reader(type).readValue(in);
+    }
+
+    public static JsonNode readTree(InputStream in) throws IOException {
+        return mapper.readTree(in);
+    }
+
+    static ObjectWriter writer(Object value) {
+        Class<?> type = value != null ? value.getClass() : Object.class;
+        return writers.computeIfAbsent(type, mapper::writerFor);
+    }
+
+    private static ObjectReader reader(Class<?> type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    private static ObjectReader reader(TypeReference<?> type) {
+        return typeReaders.computeIfAbsent(type.getType(), key -> mapper.readerFor(mapper.constructType(key)));
+    }
+}
@@ -0,0 +1,583 @@
+package ${package}.servlet;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses responses with gzip when the client accepts it (Accept-Encoding)
+ * and the body is a compressible type (compression.types) of at least
+ * compression.minSize bytes. The first minSize bytes are buffered to decide:
+ * smaller bodies are sent as they are, with their Content-Length.
+ *
+ * Deflaters are pooled (compression.poolSize) instead of allocating native
+ * zlib state for every response. Responses that already have a
+ * Content-Encoding (precompressed by the servlet) pass through untouched.
+ * Brotli is not offered: the JDK has no Brotli encoder.
+ *
+ * Requests that go async are not compressed unless compression had already
+ * started, in which case the body is finished when the request completes.
+ */
+public class CompressionFilter implements Filter {
+
+    private static final int DEFAULT_MIN_SIZE = 1024;
+    private static final String DEFAULT_TYPES = "application/json,text/html,text/plain,text/css,"
+        + "text/javascript,application/javascript,application/xml,text/xml,image/svg+xml";
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private int minSize;
+    private int level;
+    private Set<String> types;
+    private BlockingQueue<Deflater> deflaters;
+
+    @Override
+    public void init(FilterConfig config) throws ServletException {
+        minSize = intParam(config, "compression.minSize", DEFAULT_MIN_SIZE);
+        level = intParam(config, "compression.level", Deflater.DEFAULT_COMPRESSION);
+        int poolSize = intParam(config, "compression.poolSize", Runtime.getRuntime().availableProcessors() * 2);
+        deflaters = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+
+        String typeList = config.getInitParameter("compression.types");
+        types = new HashSet<>();
+        for (String type : (typeList != null && !typeList.isBlank() ? typeList : DEFAULT_TYPES).split(",")) {
+            if (!type.isBlank()) {
+                types.add(type.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static int intParam(FilterConfig config, String name, int defaultValue) {
+        String value = config.getInitParameter(name);
+        return value != null && !value.isBlank() ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        if ("HEAD".equals(request.getMethod()) || request.getHeader("Range") != null
+                || !acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        CompressingResponse response = new CompressingResponse((HttpServletResponse) res);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                response.detach(request);
+            } else {
+                response.finish();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * True if the Accept-Encoding header allows gzip (gzip, x-gzip or *,
+     * without q=0)
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        boolean accepted = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] fields = part.split(";");
+            String coding = fields[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean allowed = true;
+            for (int i = 1; i < fields.length; i++) {
+                String param = fields[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (!coding.equals("*")) {
+                // An explicit gzip entry wins over *
+                return allowed;
+            }
+            accepted = allowed;
+        }
+        return accepted;
+    }
+
+    private Deflater borrowDeflater() {
+        Deflater deflater = deflaters.poll();
+        return deflater != null ? deflater : new Deflater(level, true);
+    }
+
+    private void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (!deflaters.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Response whose body goes through a CompressingStream
+     */
+    private final class CompressingResponse extends HttpServletResponseWrapper {
+
+        private CompressingStream stream;
+        private PrintWriter writer;
+        private boolean passThrough;
+        private boolean lengthBelowMinimum;
+        private boolean lengthSet;
+        private long contentLength = -1;
+
+        CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (passThrough) {
+                return super.getOutputStream();
+            }
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            if (stream == null) {
+                stream = new CompressingStream(this);
+            }
+            return stream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (passThrough) {
+                return super.getWriter();
+            }
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                stream = new CompressingStream(this);
+                writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int length) {
+            setContentLengthLong(length);
+        }
+
+        @Override
+        public void setContentLengthLong(long length) {
+            if (passThrough || length < minSize) {
+                // Too small to compress: keep the header
+                lengthBelowMinimum = true;
+                super.setContentLengthLong(length);
+            } else {
+                // Set later only if the body is sent uncompressed
+                contentLength = length;
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name) && value != null) {
+                setContentLengthLong(Long.parseLong(value.trim()));
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name) && value != null) {
+                setContentLengthLong(Long.parseLong(value.trim()));
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                setContentLengthLong(value);
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                // Does not commit the response while the body is still buffered
+                stream.flush();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            // Throws if committed: the body sent so far cannot be taken back
+            super.resetBuffer();
+            if (stream != null) {
+                stream.reset(writer, false);
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (stream != null) {
+                stream.reset(writer, true);
+            }
+            lengthBelowMinimum = false;
+            lengthSet = false;
+            contentLength = -1;
+        }
+
+        /**
+         * True if the body, once it reached minSize bytes, may be compressed
+         */
+        boolean compressible() {
+            if (lengthBelowMinimum || getHeader("Content-Encoding") != null) {
+                return false;
+            }
+            int status = getStatus();
+            if (status == SC_NO_CONTENT || status == SC_PARTIAL_CONTENT || status == SC_NOT_MODIFIED) {
+                return false;
+            }
+            String contentType = getContentType();
+            if (contentType == null) {
+                return false;
+            }
+            int semicolon = contentType.indexOf(';');
+            String type = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+            return types.contains(type.toLowerCase(Locale.ROOT));
+        }
+
+        void startGzip() {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.setHeader("Content-Encoding", "gzip");
+            response.addHeader("Vary", "Accept-Encoding");
+            // The compressed body is a different representation
+            String etag = response.getHeader("ETag");
+            if (etag != null && !etag.startsWith("W/")) {
+                response.setHeader("ETag", "W/" + etag);
+            }
+        }
+
+        void startIdentity(long bodyLength) {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            if (bodyLength >= 0 && !lengthBelowMinimum) {
+                response.setContentLengthLong(bodyLength);
+                lengthSet = true;
+            } else if (contentLength >= 0) {
+                response.setContentLengthLong(contentLength);
+                lengthSet = true;
+            }
+        }
+
+        /**
+         * Drop the Content-Length set by startIdentity, for a body
+         * discarded by resetBuffer (reset already cleared it)
+         */
+        void clearLength() {
+            if (lengthSet) {
+                getResponse().setContentLengthLong(-1);
+                lengthSet = false;
+            }
+        }
+
+        ServletOutputStream target() throws IOException {
+            return super.getOutputStream();
+        }
+
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.finish();
+            }
+        }
+
+        /**
+         * The request went async: stop buffering, since more output may
+         * come after the filter returns
+         */
+        void detach(HttpServletRequest request) throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream == null) {
+                passThrough = true;
+            } else if (!stream.detach()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) throws IOException {
+                        finish();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Buffers the first minSize bytes, then writes them and the rest of the
+     * body either gzip-compressed or as they are
+     */
+    private final class CompressingStream extends ServletOutputStream {
+
+        private static final int BUFFERING = 0;
+        private static final int IDENTITY = 1;
+        private static final int GZIP = 2;
+
+        private final CompressingResponse response;
+        private final byte[] buffer;
+        private int count;
+        private int state = BUFFERING;
+        private boolean finished;
+        private boolean discarding;
+        // Content-Encoding: gzip is already set (body reset by resetBuffer)
+        private boolean forceGzip;
+
+        private ServletOutputStream target;
+        private Deflater deflater;
+        private byte[] deflateBuffer;
+        private CRC32 crc;
+        private long inputSize;
+
+        CompressingStream(CompressingResponse response) {
+            this.response = response;
+            this.buffer = new byte[minSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (discarding) {
+                return;
+            }
+            if (finished) {
+                throw new IOException("Response body already finished");
+            }
+            if (len == 0) {
+                return;
+            }
+            if (state == BUFFERING) {
+                if (count + len < buffer.length) {
+                    System.arraycopy(b, off, buffer, count, len);
+                    count += len;
+                    return;
+                }
+                start(forceGzip || response.compressible(), -1);
+            }
+            writeThrough(b, off, len);
+        }
+
+        private void start(boolean gzip, long bodyLength) throws IOException {
+            if (gzip) {
+                if (!forceGzip) {
+                    response.startGzip();
+                }
+                target = response.target();
+                deflater = borrowDeflater();
+                deflateBuffer = new byte[8192];
+                crc = new CRC32();
+                target.write(GZIP_HEADER);
+                state = GZIP;
+            } else {
+                response.startIdentity(bodyLength);
+                target = response.target();
+                state = IDENTITY;
+            }
+            if (count > 0) {
+                writeThrough(buffer, 0, count);
+                count = 0;
+            }
+        }
+
+        private void writeThrough(byte[] b, int off, int len) throws IOException {
+            if (state == IDENTITY) {
+                target.write(b, off, len);
+                return;
+            }
+            crc.update(b, off, len);
+            inputSize += len;
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        private void deflate() throws IOException {
+            int n = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+            if (n > 0) {
+                target.write(deflateBuffer, 0, n);
+            }
+        }
+
+        /**
+         * Start the body over once the container discarded it (reset or
+         * resetBuffer of an uncommitted response). A started gzip stream is
+         * dropped and its Deflater returned to the pool; the new body is
+         * buffered again, except after resetBuffer of a gzip body: the
+         * Content-Encoding header stays, so a new gzip stream starts.
+         *
+         * @param headersCleared True for reset (headers cleared too)
+         */
+        void reset(PrintWriter writer, boolean headersCleared) {
+            if (writer != null) {
+                // Characters still buffered by the writer belong to the discarded body
+                discarding = true;
+                writer.flush();
+                discarding = false;
+            }
+            count = 0;
+            if (state == GZIP) {
+                releaseDeflater(deflater);
+                deflater = null;
+                crc = null;
+                inputSize = 0;
+            } else if (state == IDENTITY && !headersCleared) {
+                response.clearLength();
+            }
+            forceGzip = headersCleared ? false : forceGzip || state == GZIP;
+            state = BUFFERING;
+            target = null;
+        }
+
+        /**
+         * Stop buffering for an async request
+         *
+         * @return false if compression has already started
+         */
+        boolean detach() throws IOException {
+            if (state == BUFFERING) {
+                start(forceGzip, -1);
+            }
+            return state == IDENTITY;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // While buffering the decision is not made yet: nothing to flush
+            if (state != BUFFERING && !finished && !discarding) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (state == BUFFERING) {
+                if (count == 0 && !forceGzip) {
+                    // No body (sendError, redirect, 304...): leave the response to the container
+                    return;
+                }
+                // The whole body is smaller than minSize
+                start(forceGzip, count);
+            }
+            if (state == GZIP) {
+                try {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        deflate();
+                    }
+                    writeTrailer();
+                } finally {
+                    releaseDeflater(deflater);
+                    deflater = null;
+                }
+            }
+            target.flush();
+        }
+
+        private void writeTrailer() throws IOException {
+            long value = crc.getValue();
+            byte[] trailer = new byte[8];
+            for (int i = 0; i < 4; i++) {
+                trailer[i] = (byte) (value >> (8 * i));
+                trailer[4 + i] = (byte) (inputSize >> (8 * i));
+            }
+            target.write(trailer);
+        }
+
+        @Override
+        public boolean isReady() {
+            return target == null || target.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            try {
+                if (state == BUFFERING) {
+                    start(forceGzip, -1);
+                }
+                target.setWriteListener(listener);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ${package}.servlet;
+
+import ${package}.db.QueryMetrics;
+import ${package}.json.Json;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Query metrics of the webapp (see QueryMetrics): GET returns a snapshot,
+ * DELETE resets the counters.
+ *
+ * The endpoint has no access check of its own and publishes the SQL of the
+ * webapp: it answers 404 unless the metrics.endpoint.enabled context-param
+ * is true. The metrics settings are applied by QueryMetricsListener.
+ */
+public class DatabaseMetricsServlet extends HttpServlet {
+
+    private boolean endpointEnabled;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        String enabled = getServletContext().getInitParameter("metrics.endpoint.enabled");
+        endpointEnabled = enabled != null && Boolean.parseBoolean(enabled.trim());
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!endpointEnabled) {
+            notFound(response);
+            return;
+        }
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        Json.write(response.getOutputStream(), QueryMetrics.snapshot());
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!endpointEnabled) {
+            notFound(response);
+            return;
+        }
+        QueryMetrics.reset();
+        response.setStatus(HttpServletResponse.SC_NO_CONTENT);
+    }
+
+    private static void notFound(HttpServletResponse response) throws IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        Json.write(response.getOutputStream(), Map.of("error", "Not found"));
+    }
+}
@@ -0,0 +1,32 @@
+package ${package}.servlet;
+
+import ${package}.db.SessionScope;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Request scope for database sessions: DatabaseSession.shared() calls made
+ * while handling the request share one connection, borrowed the first time
+ * it is needed and released (rolling back an unfinished transaction) when
+ * the request ends.
+ */
+public class DatabaseSessionFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        boolean owner = SessionScope.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (owner) {
+                SessionScope.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ${package}.servlet;
+
+import ${package}.db.HealthCheck;
+import ${package}.json.Json;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+/**
+ * Database health for load balancers and monitors: 200 when the database
+ * answers, 503 otherwise. The result is cached for health.ttlMillis, so
+ * frequent probes do not load the pool.
+ */
+public class HealthServlet extends HttpServlet {
+
+    private HealthCheck healthCheck;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+
+        String ttl = getInitParameter("health.ttlMillis");
+        this.healthCheck = new HealthCheck("jdbc/${artifactId}DB",
+            ttl != null && !ttl.isBlank() ? Long.parseLong(ttl.trim()) : HealthCheck.DEFAULT_TTL_MILLIS,
+            HealthCheck.DEFAULT_TIMEOUT_SECONDS);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        HealthCheck.Status status = healthCheck.check();
+
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.setStatus(status.isHealthy() ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        Json.write(response.getOutputStream(), status);
+    }
+}
@@ -0,0 +1,27 @@
+package ${package}.servlet;
+
+import ${package}.db.QueryMetrics;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Applies the metrics.enabled and metrics.slowQueryMillis context-params to
+ * QueryMetrics on startup, whether or not the metrics endpoint is enabled.
+ */
+public class QueryMetricsListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ServletContext context = event.getServletContext();
+
+        String enabled = context.getInitParameter("metrics.enabled");
+        if (enabled != null && !enabled.isBlank()) {
+            QueryMetrics.setEnabled(Boolean.parseBoolean(enabled.trim()));
+        }
+        String slowQueryMillis = context.getInitParameter("metrics.slowQueryMillis");
+        if (slowQueryMillis != null && !slowQueryMillis.isBlank()) {
+            QueryMetrics.setSlowQueryThreshold(Long.parseLong(slowQueryMillis.trim()));
+        }
+    }
+}
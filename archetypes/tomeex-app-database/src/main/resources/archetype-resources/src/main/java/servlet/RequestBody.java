@@ -0,0 +1,230 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.servlet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * JSON request bodies parsed straight from the request's InputStream
+ * (unlike HttpRequest.getBody, no String of the body is built), with a
+ * maximum size: larger bodies fail with {@link TooLargeException} as soon
+ * as the limit is crossed, or before reading when Content-Length says so.
+ *
+ * {@link ${symbol_pound}readAsync} reads the body with a ReadListener, without
+ * holding a container thread while a large upload arrives; the servlet (and
+ * its filters) must be async-supported.
+ */
+public final class RequestBody {
+
+    private static final int CHUNK_SIZE = 8192;
+    // Largest array allocated up front from Content-Length
+    private static final int MAX_INITIAL_SIZE = 16 * 1024 * 1024;
+
+    private RequestBody() {
+    }
+
+    /**
+     * Parse the body as a tree
+     *
+     * @param maxBytes Maximum body size (0: no limit)
+     */
+    public static JsonNode readTree(HttpServletRequest request, ObjectMapper mapper, long maxBytes) throws IOException {
+        return mapper.readTree(open(request, maxBytes));
+    }
+
+    /**
+     * Parse the body as an object of the type
+     *
+     * @param maxBytes Maximum body size (0: no limit)
+     */
+    public static <T> T readJson(HttpServletRequest request, ObjectMapper mapper, Class<T> type, long maxBytes)
+            throws IOException {
+        return mapper.readValue(open(request, maxBytes), type);
+    }
+
+    /**
+     * Body stream, checked against the maximum size
+     */
+    public static InputStream open(HttpServletRequest request, long maxBytes) throws IOException {
+        checkLength(request, maxBytes);
+        InputStream in = request.getInputStream();
+        return maxBytes > 0 ? new LimitedInputStream(in, maxBytes) : in;
+    }
+
+    /**
+     * Read the body asynchronously, then pass it to the handler on a
+     * container thread. The handler writes the response and must complete
+     * the AsyncContext; failures to read (too large, client gone) answer
+     * 413/400 and complete it.
+     *
+     * @param maxBytes Maximum body size (0: no limit)
+     */
+    public static void readAsync(HttpServletRequest request, long maxBytes, Handler handler) throws IOException {
+        checkLength(request, maxBytes);
+        AsyncContext context = request.startAsync();
+        ServletInputStream in = request.getInputStream();
+        long length = request.getContentLengthLong();
+        in.setReadListener(new AsyncReader(in, context, maxBytes, length, handler));
+    }
+
+    private static void checkLength(HttpServletRequest request, long maxBytes) throws TooLargeException {
+        if (maxBytes > 0 && request.getContentLengthLong() > maxBytes) {
+            throw new TooLargeException(maxBytes);
+        }
+    }
+
+    /**
+     * Receives a body read by {@link ${symbol_pound}readAsync}
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void onBody(InputStream body, AsyncContext context) throws Exception;
+    }
+
+    /**
+     * Body larger than the maximum size (413)
+     */
+    public static class TooLargeException extends IOException {
+
+        public TooLargeException(long maxBytes) {
+            super("Request body larger than " + maxBytes + " bytes");
+        }
+    }
+
+    /**
+     * Fails once more than maxBytes have been read
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private final long maxBytes;
+        private long count;
+
+        LimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws TooLargeException {
+            count += n;
+            if (count > maxBytes) {
+                throw new TooLargeException(maxBytes);
+            }
+        }
+    }
+
+    /**
+     * Reads whatever is available into one growing array (sized from
+     * Content-Length when known), handed to the handler without a copy
+     */
+    private static final class AsyncReader implements ReadListener {
+
+        private final ServletInputStream in;
+        private final AsyncContext context;
+        private final long maxBytes;
+        private final Handler handler;
+        private byte[] data;
+        private int size;
+        private boolean done;
+
+        AsyncReader(ServletInputStream in, AsyncContext context, long maxBytes, long length, Handler handler) {
+            this.in = in;
+            this.context = context;
+            this.maxBytes = maxBytes;
+            this.handler = handler;
+            this.data = new byte[length > 0 ? (int) Math.min(length, MAX_INITIAL_SIZE) : CHUNK_SIZE];
+        }
+
+        @Override
+        public void onDataAvailable() throws IOException {
+            while (!done && in.isReady() && !in.isFinished()) {
+                if (size == data.length) {
+                    data = Arrays.copyOf(data, Math.max(CHUNK_SIZE, data.length * 2));
+                }
+                int n = in.read(data, size, data.length - size);
+                if (n < 0) {
+                    return;
+                }
+                size += n;
+                if (maxBytes > 0 && size > maxBytes) {
+                    // Answered here: the container drops the connection if the listener throws
+                    done = true;
+                    fail(413, new TooLargeException(maxBytes).getMessage());
+                }
+            }
+        }
+
+        @Override
+        public void onAllDataRead() {
+            if (done) {
+                return;
+            }
+            done = true;
+            try {
+                handler.onBody(new ByteArrayInputStream(data, 0, size), context);
+            } catch (Exception e) {
+                e.printStackTrace();
+                fail(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal server error");
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            if (done) {
+                return;
+            }
+            done = true;
+            fail(HttpServletResponse.SC_BAD_REQUEST, "Cannot read request body");
+        }
+
+        private void fail(int status, String message) {
+            try {
+                HttpServletResponse response = (HttpServletResponse) context.getResponse();
+                if (!response.isCommitted()) {
+                    response.reset();
+                    response.setStatus(status);
+                    response.setContentType("application/json");
+                    response.getOutputStream().write(
+                        ("{\"error\": \"" + message + "\"}").getBytes(StandardCharsets.UTF_8));
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Client gone, nothing to answer
+            } finally {
+                if (context.getRequest().isAsyncStarted()) {
+                    context.complete();
+                }
+            }
+        }
+    }
+}
@@ -1,26 +1,93 @@
 package ${package}.servlet;
 
+import ${package}.db.AsyncBatchWriter;
+import ${package}.db.Batch;
+import ${package}.db.Cursor;
+import ${package}.db.CursorJsonWriter;
+import ${package}.db.CursorOptions;
+import ${package}.db.DatabaseSession;
+import ${package}.db.PageToken;
+import ${package}.json.Json;
 import dev.tomeex.tools.Database;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class SystemLogServlet extends HttpServlet {
 
+    private static final String INSERT_LOG =
+        "INSERT INTO system_logs (log_level, category, message, details, created_by) VALUES (?, ?, ?, ?, ?)";
+
+    // Column sizes of system_logs
+    private static final int MAX_LEVEL_LENGTH = 20;
+    private static final int MAX_NAME_LENGTH = 100;
+
+    // Rows read per round trip when listing logs
+    private static final int LIST_FETCH_SIZE = 500;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // Format of CURRENT_TIMESTAMP in SQLite, where created_at is TEXT
+    private static final DateTimeFormatter SQLITE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private ObjectMapper objectMapper;
+    private CursorJsonWriter cursorWriter;
+
+    // Buffered POST ingestion (ingest.mode = async), null when inserting synchronously
+    private AsyncBatchWriter ingestWriter;
+    private long ingestBlockMillis;
+
+    // POST bodies: maximum size, and size above which they are read asynchronously
+    private long bodyMaxBytes;
+    private long bodyAsyncThreshold;
 
     @Override
     public void init() throws ServletException {
         super.init();
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.registerModule(new JavaTimeModule());
+        this.objectMapper = Json.mapper();
+        this.cursorWriter = new CursorJsonWriter(objectMapper);
+        this.bodyMaxBytes = intParam("body.maxBytes", 10 * 1024 * 1024);
+        this.bodyAsyncThreshold = intParam("body.asyncThreshold", 1024 * 1024);
+
+        if ("async".equals(getInitParameter("ingest.mode"))) {
+            String spillFile = getInitParameter("ingest.spillFile");
+            ingestWriter = new AsyncBatchWriter("jdbc/${artifactId}DB", INSERT_LOG,
+                intParam("ingest.capacity", 10000),
+                intParam("ingest.batchSize", Batch.DEFAULT_SIZE),
+                intParam("ingest.maxDelay", 200),
+                spillFile != null && !spillFile.isBlank() ? Paths.get(spillFile) : null);
+            ingestBlockMillis = intParam("ingest.blockMillis", 0);
+            ingestWriter.start();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (ingestWriter != null) {
+            ingestWriter.close();
+        }
+        super.destroy();
+    }
+
+    private int intParam(String name, int defaultValue) {
+        String value = getInitParameter(name);
+        return value != null && !value.isBlank() ? Integer.parseInt(value.trim()) : defaultValue;
     }
 
     @Override
@@ -29,18 +96,18 @@ public class SystemLogServlet extends HttpServlet {
 
         setupCorsHeaders(response);
         response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
 
         String pathInfo = request.getPathInfo();
-        Database db = null;
+        DatabaseSession db = null;
 
         try {
-            db = new Database("jdbc/${artifactId}DB");
+            db = DatabaseSession.shared("jdbc/${artifactId}DB");
             db.open();
 
             if (pathInfo == null || pathInfo.equals("/")) {
-                // Get all logs
-                Database.Recordset logs = db.select("SELECT * FROM system_logs ORDER BY created_at DESC");
-                objectMapper.writeValue(response.getWriter(), logs);
+                // Get a page of logs
+                listLogs(request, response, db);
             } else {
                 // Get specific log by ID
                 String idStr = pathInfo.substring(1);
@@ -48,59 +115,316 @@ public class SystemLogServlet extends HttpServlet {
                 Database.Recordset logs = db.select("SELECT * FROM system_logs WHERE id = ?", id);
 
                 if (logs != null && !logs.isEmpty()) {
-                    objectMapper.writeValue(response.getWriter(), logs.get(0));
+                    Json.write(response.getOutputStream(), logs.get(0));
                 } else {
                     response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                    response.getWriter().write("{\"error\": \"Log entry not found\"}");
+                    Json.write(response.getOutputStream(), Map.of("error", "Log entry not found"));
                 }
             }
 
+            db.close();
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            Json.write(response.getOutputStream(), Map.of("error", String.valueOf(e.getMessage())));
             db.close();
         } catch (Exception e) {
             e.printStackTrace();
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            response.getWriter().write("{\"error\": \"Internal server error: " + e.getMessage() + "\"}");
+            if (!response.isCommitted()) {
+                // Drop a partially written list
+                response.reset();
+                setupCorsHeaders(response);
+                response.setContentType("application/json");
+                response.setCharacterEncoding("UTF-8");
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                Json.write(response.getOutputStream(), Map.of("error", "Internal server error: " + e.getMessage()));
+            }
             if (db != null) {
                 try { db.close(); } catch (Exception ex) {}
             }
         }
     }
 
+    /**
+     * Page of logs, newest first, keyset-paginated on (created_at, id) and
+     * streamed to the response while reading it:
+     * {"items": [...], "next": token or null}.
+     *
+     * Parameters: limit, level, category, from/to (ISO date or date-time,
+     * to excluded) and cursor (the next token of the previous page).
+     */
+    private void listLogs(HttpServletRequest request, HttpServletResponse response, DatabaseSession db)
+            throws Exception {
+
+        int limit = DEFAULT_PAGE_SIZE;
+        String limitParam = request.getParameter("limit");
+        if (limitParam != null) {
+            limit = Integer.parseInt(limitParam);
+            if (limit < 1 || limit > MAX_PAGE_SIZE) {
+                throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+            }
+        }
+
+        boolean sqlite = db.getProduct().contains("sqlite");
+        StringBuilder sql = new StringBuilder("SELECT * FROM system_logs WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+
+        String level = request.getParameter("level");
+        if (level != null) {
+            sql.append(" AND log_level = ?");
+            params.add(level);
+        }
+        String category = request.getParameter("category");
+        if (category != null) {
+            sql.append(" AND category = ?");
+            params.add(category);
+        }
+        String from = request.getParameter("from");
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            params.add(timeParam(from, sqlite));
+        }
+        String to = request.getParameter("to");
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+            params.add(timeParam(to, sqlite));
+        }
+        String cursor = request.getParameter("cursor");
+        if (cursor != null) {
+            // Rows after the last one of the previous page, as a range on created_at
+            PageToken token = PageToken.decode(cursor);
+            sql.append(" AND created_at <= ? AND (created_at < ? OR id < ?)");
+            params.add(token.getSortValue());
+            params.add(token.getSortValue());
+            params.add(token.getId());
+        }
+
+        // One more row than the page tells if there is a next page
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        params.add(limit + 1);
+
+        try (Cursor logs = db.cursor(CursorOptions.defaults().fetchSize(LIST_FETCH_SIZE), sql.toString(), params.toArray());
+             JsonGenerator generator = cursorWriter.createGenerator(response.getOutputStream())) {
+
+            ResultSet resultSet = logs.getResultSet();
+            generator.writeStartObject();
+            generator.writeFieldName("items");
+            long rows = cursorWriter.write(logs, generator, limit);
+
+            String next = null;
+            if (rows == limit) {
+                // Read without a time zone conversion (TIMESTAMP columns have no zone)
+                Object createdAt = sqlite
+                    ? resultSet.getString("created_at")
+                    : resultSet.getObject("created_at", LocalDateTime.class);
+                PageToken last = new PageToken(createdAt, resultSet.getLong("id"));
+                if (logs.next()) {
+                    next = last.encode();
+                }
+            }
+            generator.writeStringField("next", next);
+            generator.writeEndObject();
+        }
+    }
+
+    private static Object timeParam(String value, boolean sqlite) {
+        LocalDateTime time;
+        try {
+            time = value.length() == 10
+                ? LocalDate.parse(value).atStartOfDay()
+                : LocalDateTime.parse(value.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value);
+        }
+        return sqlite ? time.format(SQLITE_TIME) : time;
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
 
         setupCorsHeaders(response);
         response.setContentType("application/json");
-        Database db = null;
+        response.setCharacterEncoding("UTF-8");
 
         try {
-            Map<String, Object> logData = objectMapper.readValue(
-                request.getReader(),
-                new TypeReference<Map<String, Object>>() {}
+            if (bodyAsyncThreshold > 0 && request.getContentLengthLong() > bodyAsyncThreshold
+                    && request.isAsyncSupported()) {
+                // Large upload: read it without holding a request thread
+                RequestBody.readAsync(request, bodyMaxBytes, (body, context) -> {
+                    HttpServletResponse asyncResponse = (HttpServletResponse) context.getResponse();
+                    try {
+                        createLogs(Json.readTree(body), asyncResponse);
+                    } catch (Exception e) {
+                        postError(asyncResponse, e);
+                    } finally {
+                        context.complete();
+                    }
+                });
+                return;
+            }
+
+            createLogs(RequestBody.readTree(request, objectMapper, bodyMaxBytes), response);
+        } catch (Exception e) {
+            postError(response, e);
+        }
+    }
+
+    /**
+     * Insert (or queue, in async ingestion) one log entry or an array of
+     * entries, answering with the entries and their ids
+     */
+    private void createLogs(JsonNode body, HttpServletResponse response) throws Exception {
+        if (ingestWriter != null) {
+            ingestLogs(body, response);
+            return;
+        }
+
+        if (body.isArray()) {
+            // Array of log entries: inserted as one batch
+            List<Map<String, Object>> entries = objectMapper.convertValue(
+                body,
+                new TypeReference<List<Map<String, Object>>>() {}
             );
+            insertLogs(entries);
+
+            response.setStatus(HttpServletResponse.SC_CREATED);
+            Json.write(response.getOutputStream(), entries);
+            return;
+        }
 
-            db = new Database("jdbc/${artifactId}DB");
+        Map<String, Object> logData = objectMapper.convertValue(
+            body,
+            new TypeReference<Map<String, Object>>() {}
+        );
+
+        Object[] row = logRow(logData);
+        DatabaseSession db = DatabaseSession.shared("jdbc/${artifactId}DB");
+        try {
             db.open();
-            db.query("INSERT INTO system_logs (log_level, category, message, details, created_by) VALUES (?, ?, ?, ?, ?)",
-                    logData.get("logLevel"),
-                    logData.get("category"),
-                    logData.get("message"),
-                    logData.get("details"),
-                    logData.get("createdBy"));
+            db.query(INSERT_LOG, row);
 
             long id = db.lastInsertId();
             logData.put("id", id);
+        } finally {
             db.close();
+        }
 
-            response.setStatus(HttpServletResponse.SC_CREATED);
-            objectMapper.writeValue(response.getWriter(), logData);
-        } catch (Exception e) {
-            e.printStackTrace();
-            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-            response.getWriter().write("{\"error\": \"Invalid data: " + e.getMessage() + "\"}");
-            if (db != null) {
-                try { db.close(); } catch (Exception ex) {}
+        response.setStatus(HttpServletResponse.SC_CREATED);
+        Json.write(response.getOutputStream(), logData);
+    }
+
+    private void postError(HttpServletResponse response, Exception e) throws IOException {
+        if (e instanceof RequestBody.TooLargeException) {
+            response.setStatus(413);
+            Json.write(response.getOutputStream(), Map.of("error", e.getMessage()));
+            return;
+        }
+        e.printStackTrace();
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        Json.write(response.getOutputStream(), Map.of("error", "Invalid data: " + e.getMessage()));
+    }
+
+    /**
+     * Queue log entries for the background writer: 202 when every entry was
+     * queued, 429 when the buffer filled up (the first "accepted" entries
+     * were queued), 400 (nothing queued) if an entry would be rejected by
+     * the database, as it would fail the batch of other clients' entries
+     */
+    private void ingestLogs(JsonNode body, HttpServletResponse response) throws Exception {
+        List<Map<String, Object>> entries = objectMapper.convertValue(
+            body.isArray() ? body : objectMapper.createArrayNode().add(body),
+            new TypeReference<List<Map<String, Object>>>() {}
+        );
+
+        List<Object[]> rows = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            try {
+                rows.add(logRow(entries.get(i)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                    body.isArray() ? "entry " + i + ": " + e.getMessage() : e.getMessage());
+            }
+        }
+
+        int accepted = 0;
+        for (Object[] row : rows) {
+            boolean queued = ingestBlockMillis > 0
+                ? ingestWriter.offer(ingestBlockMillis, row)
+                : ingestWriter.offer(row);
+            if (!queued) {
+                break;
+            }
+            accepted++;
+        }
+
+        if (accepted < entries.size()) {
+            response.setStatus(429);
+            response.setHeader("Retry-After", "1");
+            Json.write(response.getOutputStream(),
+                Map.of("error", "Log buffer full", "accepted", accepted));
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        Json.write(response.getOutputStream(), body.isArray() ? entries : entries.get(0));
+    }
+
+    /**
+     * Insert parameters of a log entry, checked against the system_logs
+     * columns; details are stored as JSON text
+     *
+     * @throws IllegalArgumentException if the database would reject the entry
+     */
+    private static Object[] logRow(Map<String, Object> logData) throws IOException {
+        Object details = logData.get("details");
+        return new Object[] {
+            text(logData, "logLevel", true, MAX_LEVEL_LENGTH),
+            text(logData, "category", false, MAX_NAME_LENGTH),
+            text(logData, "message", true, 0),
+            details != null ? Json.encode(details) : null,
+            text(logData, "createdBy", false, MAX_NAME_LENGTH)
+        };
+    }
+
+    private static String text(Map<String, Object> logData, String field, boolean required, int maxLength) {
+        Object value = logData.get(field);
+        if (value == null) {
+            if (required) {
+                throw new IllegalArgumentException(field + " is required");
+            }
+            return null;
+        }
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException(field + " must be a string");
+        }
+        String text = (String) value;
+        if (maxLength > 0 && text.codePointCount(0, text.length()) > maxLength) {
+            throw new IllegalArgumentException(field + " is longer than " + maxLength + " characters");
+        }
+        return text;
+    }
+
+    private void insertLogs(List<Map<String, Object>> entries) throws Exception {
+        try (DatabaseSession session = DatabaseSession.shared("jdbc/${artifactId}DB")) {
+            session.open();
+            session.begin();
+
+            try (Batch batch = session.batch(INSERT_LOG, Batch.DEFAULT_SIZE, true)) {
+                for (Map<String, Object> logData : entries) {
+                    batch.add(logRow(logData));
+                }
+
+                List<Long> ids = batch.execute();
+                session.commit();
+
+                if (ids.size() == entries.size()) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        entries.get(i).put("id", ids.get(i));
+                    }
+                }
+            } catch (Exception e) {
+                session.rollback();
+                throw e;
             }
         }
     }
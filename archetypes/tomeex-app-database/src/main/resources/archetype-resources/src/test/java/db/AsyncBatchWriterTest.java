@@ -0,0 +1,134 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests for AsyncBatchWriter (H2, in-memory database)
+ *
+ * Checks that a row the database rejects does not take the rest of its
+ * batch with it, that spilled rows the database rejects are moved aside
+ * instead of blocking the replay, and that rows are spilled when the
+ * database cannot be reached.
+ */
+public class AsyncBatchWriterTest {
+
+    private static final String JNDI_NAME = "jdbc/AsyncBatchDB";
+    private static final String INSERT = "INSERT INTO logs (log_level, message) VALUES (?, ?)";
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "org.apache.naming.java.javaURLContextFactory");
+        System.setProperty(Context.URL_PKG_PREFIXES, "org.apache.naming");
+
+        InitialContext ic = new InitialContext();
+        try {
+            ic.createSubcontext("java:");
+            ic.createSubcontext("java:comp");
+            ic.createSubcontext("java:comp/env");
+            ic.createSubcontext("java:comp/env/jdbc");
+        } catch (NamingException e) {
+            // Subcontexts may already exist
+        }
+
+        BasicDataSource ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUrl("jdbc:h2:mem:asyncbatch;DB_CLOSE_DELAY=-1");
+        ic.rebind("java:comp/env/" + JNDI_NAME, ds);
+
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            db.query("CREATE TABLE logs (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "log_level VARCHAR(20) NOT NULL, message VARCHAR(1000) NOT NULL)");
+        }
+    }
+
+    @BeforeEach
+    void clear() throws Exception {
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            db.query("DELETE FROM logs");
+        }
+    }
+
+    @Test
+    void testRejectedRowsDoNotFailTheBatch() throws Exception {
+        AsyncBatchWriter writer = new AsyncBatchWriter(JNDI_NAME, INSERT, 100, 10, 50, null);
+        writer.start();
+        assertTrue(writer.offer("INFO", "first"));
+        assertTrue(writer.offer(null, "no level"));
+        assertTrue(writer.offer("INFO", "second"));
+        assertTrue(writer.offer("A_LEVEL_LONGER_THAN_20", "too long"));
+        assertTrue(writer.offer("WARN", "third"));
+        writer.close();
+
+        assertEquals(List.of("first", "second", "third"), messages());
+        assertEquals(3, writer.getWritten());
+        assertEquals(2, writer.getDropped());
+        assertEquals(0, writer.getSpilled());
+    }
+
+    @Test
+    void testReplayMovesRejectedRowsAside() throws Exception {
+        Path spillFile = dir.resolve("logs.spill");
+        Files.write(spillFile, List.of(
+            "[\"INFO\",\"spilled 1\"]",
+            "[null,\"no level\"]",
+            "[\"INFO\",\"spilled 2\"]",
+            "[\"INFO\",\"cut sh"), StandardCharsets.UTF_8);
+
+        AsyncBatchWriter writer = new AsyncBatchWriter(JNDI_NAME, INSERT, 100, 10, 0, spillFile);
+        writer.start();
+        // A successful write replays the spill file
+        assertTrue(writer.offer("INFO", "live"));
+        writer.close();
+
+        assertEquals(List.of("live", "spilled 1", "spilled 2"), messages());
+        assertEquals(2, writer.getDropped());
+        assertFalse(Files.exists(spillFile));
+        assertFalse(Files.exists(dir.resolve("logs.spill.replay")));
+        assertEquals(List.of("[null,\"no level\"]", "[\"INFO\",\"cut sh"),
+            Files.readAllLines(dir.resolve("logs.spill.rejected"), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUnreachableDatabaseSpills() throws Exception {
+        Path spillFile = dir.resolve("down.spill");
+        AsyncBatchWriter writer = new AsyncBatchWriter("jdbc/UnboundDB", INSERT, 100, 10, 0, spillFile);
+        writer.start();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(writer.offer("INFO", "row " + i));
+        }
+        writer.close();
+
+        assertEquals(3, writer.getSpilled());
+        assertEquals(0, writer.getDropped());
+        assertEquals(3, Files.readAllLines(spillFile, StandardCharsets.UTF_8).size());
+    }
+
+    private static List<Object> messages() throws Exception {
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            return db.select(rs -> rs.getObject("message"), "SELECT message FROM logs ORDER BY id");
+        }
+    }
+}
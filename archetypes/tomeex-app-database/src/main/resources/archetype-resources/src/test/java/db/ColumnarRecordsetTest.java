@@ -0,0 +1,180 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ${package}.json.Json;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+/**
+ * Tests for ColumnarRecordset (H2, in-memory database)
+ *
+ * Checks that an integer column is widened when a value overflows int,
+ * that NULLs are kept apart from zero values in every kind of column, and
+ * that a ColumnarRecordset serializes to the same JSON as the Recordset
+ * of the same query.
+ */
+public class ColumnarRecordsetTest {
+
+    private static final String JNDI_NAME = "jdbc/ColumnarDB";
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "org.apache.naming.java.javaURLContextFactory");
+        System.setProperty(Context.URL_PKG_PREFIXES, "org.apache.naming");
+
+        InitialContext ic = new InitialContext();
+        try {
+            ic.createSubcontext("java:");
+            ic.createSubcontext("java:comp");
+            ic.createSubcontext("java:comp/env");
+            ic.createSubcontext("java:comp/env/jdbc");
+        } catch (NamingException e) {
+            // Subcontexts may already exist
+        }
+
+        BasicDataSource ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUrl("jdbc:h2:mem:columnar;DB_CLOSE_DELAY=-1");
+        ic.rebind("java:comp/env/" + JNDI_NAME, ds);
+
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            db.query("CREATE TABLE samples ("
+                + "id BIGINT PRIMARY KEY, "
+                + "quantity INTEGER, "
+                + "total BIGINT, "
+                + "price DOUBLE PRECISION, "
+                + "label VARCHAR(20), "
+                + "created_at TIMESTAMP)");
+            db.query("INSERT INTO samples VALUES (1, 7, 3000000000, 1.5, 'first', TIMESTAMP '2026-01-01 10:00:00')");
+            db.query("INSERT INTO samples VALUES (2, 0, 0, 0, '', TIMESTAMP '2026-01-02 10:00:00')");
+            db.query("INSERT INTO samples VALUES (3, NULL, NULL, NULL, NULL, NULL)");
+            db.query("INSERT INTO samples VALUES (4, -3, -1, -2.25, 'first', TIMESTAMP '2026-01-04 10:00:00')");
+        }
+    }
+
+    @Test
+    void testIntegerColumnOverflowingInt() throws Exception {
+        // SQLite reports every integer column as INTEGER, whatever it holds
+        String sql = "SELECT total FROM samples ORDER BY id";
+        ColumnarRecordset recordset;
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            try (Cursor cursor = db.cursor(sql)) {
+                recordset = ColumnarRecordset.read(reportingInteger(cursor.getResultSet()));
+            }
+        }
+
+        assertEquals(4, recordset.size());
+        assertEquals(3_000_000_000L, recordset.getLong(0, 0));
+        assertEquals(3_000_000_000L, recordset.get(0, "TOTAL"));
+        assertEquals(0L, recordset.get(1, 0));
+        assertNull(recordset.get(2, 0));
+        assertEquals(-1L, recordset.getLong(3, 0));
+    }
+
+    @Test
+    void testIntegerColumnWidenedAfterIntRows() throws Exception {
+        String sql = "SELECT total FROM samples ORDER BY id DESC";
+        ColumnarRecordset recordset;
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            try (Cursor cursor = db.cursor(sql)) {
+                recordset = ColumnarRecordset.read(reportingInteger(cursor.getResultSet()));
+            }
+        }
+
+        // Rows read as int before the overflow keep their values
+        assertEquals(-1L, recordset.get(0, 0));
+        assertNull(recordset.get(1, 0));
+        assertTrue(recordset.isNull(1, 0));
+        assertEquals(0L, recordset.get(2, 0));
+        assertFalse(recordset.isNull(2, 0));
+        assertEquals(3_000_000_000L, recordset.getLong(3, 0));
+    }
+
+    @Test
+    void testNullsInEveryKind() throws Exception {
+        ColumnarRecordset recordset;
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            recordset = db.selectColumnar("SELECT * FROM samples WHERE id IN (2, 3) ORDER BY id");
+        }
+
+        assertEquals(2, recordset.size());
+        for (int column = 1; column < recordset.getColumnCount(); column++) {
+            String name = recordset.getColumnName(column);
+            assertFalse(recordset.isNull(0, column), name);
+            assertNotNull(recordset.get(0, column), name);
+            assertTrue(recordset.isNull(1, column), name);
+            assertNull(recordset.get(1, column), name);
+            assertNull(recordset.getString(1, column), name);
+            assertNull(recordset.row(1).get(name), name);
+            assertTrue(recordset.row(1).containsKey(name), name);
+        }
+
+        assertEquals(0, recordset.getInt(1, recordset.getColumnIndex("QUANTITY")));
+        assertEquals(0L, recordset.getLong(1, recordset.getColumnIndex("TOTAL")));
+        assertEquals(0.0, recordset.getDouble(1, recordset.getColumnIndex("PRICE")));
+        assertEquals("", recordset.getString(0, recordset.getColumnIndex("LABEL")));
+    }
+
+    @Test
+    void testJsonMatchesRecordset() throws Exception {
+        String[] queries = {
+            "SELECT * FROM samples ORDER BY id",
+            "SELECT label, id, price FROM samples WHERE id > ? ORDER BY id DESC",
+            "SELECT COUNT(*) AS rows_count, MAX(total) AS max_total FROM samples",
+            "SELECT * FROM samples WHERE id < 0"
+        };
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            for (String sql : queries) {
+                Object[] params = sql.contains("?") ? new Object[] {1} : new Object[0];
+                assertEquals(Json.encode(db.select(sql, params)),
+                    Json.encode(db.selectColumnar(sql, params)), sql);
+            }
+        }
+    }
+
+    /**
+     * ResultSet whose metadata reports BIGINT columns as INTEGER
+     */
+    private static ResultSet reportingInteger(ResultSet resultSet) throws Exception {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        ResultSetMetaData integerMetaData = proxy(ResultSetMetaData.class, metaData, (method, args) ->
+            method.getName().equals("getColumnType") && metaData.getColumnType((Integer) args[0]) == Types.BIGINT
+                ? Types.INTEGER
+                : method.invoke(metaData, args));
+        return proxy(ResultSet.class, resultSet, (method, args) ->
+            method.getName().equals("getMetaData") ? integerMetaData : method.invoke(resultSet, args));
+    }
+
+    private interface Handler {
+        Object invoke(java.lang.reflect.Method method, Object[] args) throws Exception;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (p, method, args) -> {
+            try {
+                return handler.invoke(method, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }));
+    }
+}
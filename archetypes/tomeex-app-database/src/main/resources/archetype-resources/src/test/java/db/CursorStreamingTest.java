@@ -0,0 +1,191 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+/**
+ * Tests for DatabaseSession cursors
+ *
+ * Streams a system_logs table of 200,000 rows (H2, file database) to
+ * JSON through a cursor and checks that the heap does not grow with the
+ * number of rows read.
+ */
+public class CursorStreamingTest {
+
+    private static final String JNDI_NAME = "jdbc/StreamingDB";
+    private static final int ROWS = 200_000;
+    private static final long SAMPLE_BYTES = 4L * 1024 * 1024;
+    private static final long MAX_HEAP_GROWTH = 16L * 1024 * 1024;
+
+    @TempDir
+    static Path dataDir;
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "org.apache.naming.java.javaURLContextFactory");
+        System.setProperty(Context.URL_PKG_PREFIXES, "org.apache.naming");
+
+        InitialContext ic = new InitialContext();
+        try {
+            ic.createSubcontext("java:");
+            ic.createSubcontext("java:comp");
+            ic.createSubcontext("java:comp/env");
+            ic.createSubcontext("java:comp/env/jdbc");
+        } catch (NamingException e) {
+            // Subcontexts may already exist
+        }
+
+        BasicDataSource ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        // Small page cache: the table itself must not end up on the heap
+        ds.setUrl("jdbc:h2:file:" + dataDir.resolve("logs") + ";CACHE_SIZE=4096");
+        ds.setMaxTotal(2);
+        ic.rebind("java:comp/env/" + JNDI_NAME, ds);
+
+        try (Connection connection = ds.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE system_logs ("
+                + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                + "log_level VARCHAR(20) NOT NULL, "
+                + "category VARCHAR(100), "
+                + "message VARCHAR(1000) NOT NULL, "
+                + "details VARCHAR(1000), "
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                + "created_by VARCHAR(100))");
+            statement.execute("INSERT INTO system_logs (log_level, category, message, created_at, created_by) "
+                + "SELECT CASE MOD(X, 3) WHEN 0 THEN 'INFO' WHEN 1 THEN 'WARN' ELSE 'ERROR' END, "
+                + "'CATEGORY_' || MOD(X, 10), 'Log message number ' || X, "
+                + "DATEADD('SECOND', X, TIMESTAMP '2026-01-01 00:00:00'), 'test' "
+                + "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        }
+    }
+
+    @Test
+    void testCursorStreamsInConstantMemory() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        HeapSamplingStream out = new HeapSamplingStream();
+
+        long rows;
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            try (Cursor cursor = db.cursor("SELECT * FROM system_logs ORDER BY id")) {
+                rows = new CursorJsonWriter(objectMapper).write(cursor, out);
+            }
+
+            // The cursor's read-only transaction is over
+            assertTrue(db.connection().getAutoCommit());
+            assertFalse(db.connection().isReadOnly());
+        }
+
+        long growth = out.maxHeap - out.firstHeap;
+        assertEquals(ROWS, rows);
+        assertTrue(out.samples >= 4, "Not enough heap samples");
+        assertTrue(growth < MAX_HEAP_GROWTH, "Heap grew by " + growth / 1024 + " KB while streaming");
+    }
+
+    @Test
+    void testCursorOptions() throws Exception {
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            CursorOptions options = CursorOptions.defaults().fetchSize(100).readOnly(false);
+            try (Cursor cursor = db.cursor(options, "SELECT id, log_level FROM system_logs WHERE id <= ? ORDER BY id", 3)) {
+                int count = 0;
+                while (cursor.next()) {
+                    count++;
+                    assertEquals((long) count, ((Number) cursor.get("id")).longValue());
+                    assertEquals(100, cursor.getResultSet().getStatement().getFetchSize());
+                }
+                assertEquals(3, count);
+            }
+            assertTrue(db.connection().getAutoCommit());
+        }
+    }
+
+    @Test
+    void testCursorSurvivesStatementReuse() throws Exception {
+        String sql = "SELECT id FROM system_logs WHERE id <= ? ORDER BY id";
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME, 4, 0)) {
+            db.open();
+            int count = 0;
+            try (Cursor cursor = db.cursor(CursorOptions.defaults().fetchSize(2), sql, 10)) {
+                while (cursor.next()) {
+                    count++;
+                    if (count == 3) {
+                        // Same SQL again, then enough statements to evict every cached one
+                        try (Cursor nested = db.cursor(sql, 10)) {
+                            while (nested.next()) {
+                            }
+                        }
+                        assertEquals(10, db.select(sql, 10).size());
+                        for (int i = 0; i < 10; i++) {
+                            db.select("SELECT id FROM system_logs WHERE id = " + i);
+                        }
+                    }
+                }
+            }
+            assertEquals(10, count);
+
+            // The cursor's fetch size is not left on a cached statement
+            PreparedStatement cached = db.getStatementCache().prepare(sql);
+            assertNotEquals(2, cached.getFetchSize());
+        }
+    }
+
+    /**
+     * Output that discards the JSON and samples the used heap (after a GC)
+     * every SAMPLE_BYTES bytes
+     */
+    private static class HeapSamplingStream extends OutputStream {
+
+        long bytes;
+        int samples;
+        long firstHeap;
+        long maxHeap;
+
+        @Override
+        public void write(int b) {
+            count(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count(len);
+        }
+
+        private void count(int len) {
+            long before = bytes / SAMPLE_BYTES;
+            bytes += len;
+            if (bytes / SAMPLE_BYTES != before) {
+                long used = usedHeap();
+                if (samples++ == 0) {
+                    firstHeap = used;
+                }
+                maxHeap = Math.max(maxHeap, used);
+            }
+        }
+
+        private static long usedHeap() {
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            return runtime.totalMemory() - runtime.freeMemory();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+#set( $symbol_pound = '#' )
+#set( $symbol_dollar = '$' )
+#set( $symbol_escape = '\' )
+package ${package}.db;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Tests for RecordMapper (H2, in-memory database)
+ *
+ * Checks column matching by name (created_at fills createdAt), the error
+ * for a component without a column, NULLs in boxed components, timestamps
+ * stored as text (as SQLite stores CURRENT_TIMESTAMP) and enum components.
+ */
+public class RecordMapperTest {
+
+    private static final String JNDI_NAME = "jdbc/RecordMapperDB";
+
+    enum Level { INFO, WARN, ERROR }
+
+    record Log(long id, Level logLevel, String message, LocalDateTime createdAt) {}
+
+    record Counts(long id, Long total, Integer retries) {}
+
+    record TextTimes(long id, LocalDateTime createdAt, LocalDate createdOn) {}
+
+    record Missing(long id, String createdBy) {}
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "org.apache.naming.java.javaURLContextFactory");
+        System.setProperty(Context.URL_PKG_PREFIXES, "org.apache.naming");
+
+        InitialContext ic = new InitialContext();
+        try {
+            ic.createSubcontext("java:");
+            ic.createSubcontext("java:comp");
+            ic.createSubcontext("java:comp/env");
+            ic.createSubcontext("java:comp/env/jdbc");
+        } catch (NamingException e) {
+            // Subcontexts may already exist
+        }
+
+        BasicDataSource ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUrl("jdbc:h2:mem:recordmapper;DB_CLOSE_DELAY=-1");
+        ic.rebind("java:comp/env/" + JNDI_NAME, ds);
+
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            db.query("CREATE TABLE system_logs (id BIGINT PRIMARY KEY, log_level VARCHAR(20), "
+                + "message VARCHAR(1000), created_at TIMESTAMP, total BIGINT, retries INTEGER)");
+            db.query("INSERT INTO system_logs VALUES (1, 'INFO', 'started', TIMESTAMP '2026-01-01 10:00:00', 5, 0)");
+            db.query("INSERT INTO system_logs VALUES (2, 'ERROR', 'failed', TIMESTAMP '2026-01-01 10:00:01', NULL, NULL)");
+            db.query("INSERT INTO system_logs VALUES (3, NULL, 'no level', NULL, 0, 2)");
+
+            // Text columns, as SQLite returns its timestamps
+            db.query("CREATE TABLE text_times (id BIGINT PRIMARY KEY, created_at VARCHAR(30), created_on VARCHAR(30))");
+            db.query("INSERT INTO text_times VALUES (1, '2026-03-29 02:30:00', '2026-03-29')");
+            db.query("INSERT INTO text_times VALUES (2, '2026-03-29 02:30:00.125', '2026-03-29 23:59:59')");
+            db.query("INSERT INTO text_times VALUES (3, '2026-03-29T02:30:00', NULL)");
+        }
+    }
+
+    @Test
+    void testColumnsMatchedByName() throws Exception {
+        List<Log> logs;
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            // Columns in another order than the components, labels in upper case
+            logs = db.select(Log.class, "SELECT created_at, message, log_level, id FROM system_logs ORDER BY id");
+        }
+
+        assertEquals(3, logs.size());
+        assertEquals(new Log(1, Level.INFO, "started", LocalDateTime.of(2026, 1, 1, 10, 0, 0)), logs.get(0));
+        assertEquals(LocalDateTime.of(2026, 1, 1, 10, 0, 1), logs.get(1).createdAt());
+        assertNull(logs.get(2).createdAt());
+    }
+
+    @Test
+    void testMissingColumn() throws Exception {
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            SQLException e = assertThrows(SQLException.class,
+                () -> db.select(Missing.class, "SELECT id, message FROM system_logs"));
+            assertEquals("No column for Missing.createdBy", e.getMessage());
+        }
+    }
+
+    @Test
+    void testBoxedNulls() throws Exception {
+        List<Counts> counts;
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            counts = db.select(Counts.class, "SELECT id, total, retries FROM system_logs ORDER BY id");
+        }
+
+        assertEquals(new Counts(1, 5L, 0), counts.get(0));
+        assertEquals(new Counts(2, null, null), counts.get(1));
+        // Zero is not NULL
+        assertEquals(new Counts(3, 0L, 2), counts.get(2));
+    }
+
+    @Test
+    void testTextTimestamps() throws Exception {
+        List<TextTimes> times;
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            times = db.select(TextTimes.class, "SELECT * FROM text_times ORDER BY id");
+        }
+
+        LocalDateTime gap = LocalDateTime.of(2026, 3, 29, 2, 30);
+        assertEquals(new TextTimes(1, gap, LocalDate.of(2026, 3, 29)), times.get(0));
+        assertEquals(new TextTimes(2, gap.plusNanos(125_000_000), LocalDate.of(2026, 3, 29)), times.get(1));
+        assertEquals(new TextTimes(3, gap, null), times.get(2));
+    }
+
+    @Test
+    void testEnums() throws Exception {
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            List<Log> logs = db.select(Log.class, "SELECT * FROM system_logs ORDER BY id");
+            assertEquals(Level.INFO, logs.get(0).logLevel());
+            assertEquals(Level.ERROR, logs.get(1).logLevel());
+            assertNull(logs.get(2).logLevel());
+
+            // Enum names are matched exactly
+            assertThrows(IllegalArgumentException.class,
+                () -> db.select(Log.class, "SELECT id, 'info' AS log_level, message, created_at FROM system_logs"));
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ${package}.json;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import ${package}.db.Cursor;
+import ${package}.db.CursorJsonWriter;
+import ${package}.db.DatabaseSession;
+import com.fasterxml.jackson.core.JsonGenerator;
+import dev.tomeex.tools.ApiResponse;
+import org.apache.commons.dbcp2.BasicDataSource;
+
+import javax.naming.Context;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for ApiResponseWriter (H2, in-memory database)
+ *
+ * Checks that the streamed envelope is byte for byte the JSON of
+ * ApiResponse.toJson for null, Map and Recordset payloads, and that a
+ * Cursor payload is written like the Recordset of the same query.
+ */
+public class ApiResponseWriterTest {
+
+    private static final String JNDI_NAME = "jdbc/ApiResponseDB";
+    private static final String QUERY = "SELECT * FROM system_logs ORDER BY id";
+
+    @BeforeAll
+    static void setUp() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "org.apache.naming.java.javaURLContextFactory");
+        System.setProperty(Context.URL_PKG_PREFIXES, "org.apache.naming");
+
+        InitialContext ic = new InitialContext();
+        try {
+            ic.createSubcontext("java:");
+            ic.createSubcontext("java:comp");
+            ic.createSubcontext("java:comp/env");
+            ic.createSubcontext("java:comp/env/jdbc");
+        } catch (NamingException e) {
+            // Subcontexts may already exist
+        }
+
+        BasicDataSource ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUrl("jdbc:h2:mem:apiresponse;DB_CLOSE_DELAY=-1");
+        ic.rebind("java:comp/env/" + JNDI_NAME, ds);
+
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            db.query("CREATE TABLE system_logs (id BIGINT PRIMARY KEY, log_level VARCHAR(20) NOT NULL, "
+                + "message VARCHAR(1000) NOT NULL, details VARCHAR(1000), duration DOUBLE PRECISION, "
+                + "created_at TIMESTAMP)");
+            db.query("INSERT INTO system_logs VALUES (1, 'INFO', 'started', NULL, 0.5, TIMESTAMP '2026-01-01 10:00:00')");
+            db.query("INSERT INTO system_logs VALUES (2, 'ERROR', 'quote \" and \\\\ and caffè', "
+                + "'{\"code\": 500}', NULL, TIMESTAMP '2026-01-01 10:00:01')");
+            db.query("INSERT INTO system_logs VALUES (3, 'WARN', 'line\nbreak', NULL, -1, NULL)");
+        }
+    }
+
+    @Test
+    void testNullPayload() throws Exception {
+        assertSameJson(ApiResponse.success(null));
+        assertSameJson(ApiResponse.error(404, "Not found"));
+        assertSameJson(ApiResponse.error("quote \" and\ttab"));
+    }
+
+    @Test
+    void testMapPayload() throws Exception {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("id", 42L);
+        out.put("name", "caffè \"latte\"");
+        out.put("tags", List.of("a", "b"));
+        out.put("missing", null);
+        out.put("nested", Map.of("ratio", 0.25));
+        assertSameJson(ApiResponse.success(out));
+        assertSameJson(ApiResponse.success(Map.of()));
+    }
+
+    @Test
+    void testRecordsetPayload() throws Exception {
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            assertSameJson(ApiResponse.success(db.select(QUERY)));
+            assertSameJson(ApiResponse.success(db.select("SELECT * FROM system_logs WHERE id < 0")));
+        }
+    }
+
+    @Test
+    void testCursorPayload() throws Exception {
+        try (DatabaseSession db = new DatabaseSession(JNDI_NAME)) {
+            db.open();
+            String expected = ApiResponse.success(db.select(QUERY)).toJson();
+            try (Cursor cursor = db.cursor(QUERY)) {
+                assertEquals(expected, write(ApiResponse.success(cursor)));
+                assertEquals(3, cursor.getRowCount());
+            }
+        }
+    }
+
+    private static void assertSameJson(ApiResponse apiResponse) throws Exception {
+        assertEquals(apiResponse.toJson(), write(apiResponse));
+    }
+
+    private static String write(ApiResponse apiResponse) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = new CursorJsonWriter(Json.mapper()).createGenerator(out)) {
+            ApiResponseWriter.write(apiResponse, generator);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
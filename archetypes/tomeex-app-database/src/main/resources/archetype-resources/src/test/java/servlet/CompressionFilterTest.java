@@ -0,0 +1,233 @@
+package ${package}.servlet;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.descriptor.web.FilterDef;
+import org.apache.tomcat.util.descriptor.web.FilterMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tests for CompressionFilter, on an embedded Tomcat
+ *
+ * Checks the gzip/identity decision, and that a response reset after
+ * compression started (an error while streaming a list) is sent as a
+ * plain, readable body.
+ */
+public class CompressionFilterTest {
+
+    private static final String LARGE = json(500);
+    private static final String SMALL = json(2);
+    private static final String ERROR = "{\"error\": \"failed\"}";
+
+    private static Tomcat tomcat;
+    private static int port;
+
+    /**
+     * Writes a body chosen by the "case" parameter
+     */
+    public static class TestServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            response.setContentType("application/json");
+            response.setCharacterEncoding("UTF-8");
+            switch (request.getParameter("case")) {
+                case "large":
+                    response.getOutputStream().write(LARGE.getBytes(StandardCharsets.UTF_8));
+                    break;
+                case "small":
+                    response.getOutputStream().write(SMALL.getBytes(StandardCharsets.UTF_8));
+                    break;
+                case "writer":
+                    response.getWriter().write(LARGE);
+                    break;
+                case "precompressed":
+                    response.setHeader("Content-Encoding", "identity");
+                    response.getOutputStream().write(LARGE.getBytes(StandardCharsets.UTF_8));
+                    break;
+                case "reset":
+                    // Like SystemLogServlet when a list fails mid-stream
+                    response.getOutputStream().write(LARGE.getBytes(StandardCharsets.UTF_8));
+                    response.reset();
+                    response.setContentType("application/json");
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    response.getOutputStream().write(ERROR.getBytes(StandardCharsets.UTF_8));
+                    break;
+                case "resetWriter":
+                    response.getWriter().write(LARGE);
+                    response.reset();
+                    response.setContentType("application/json");
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    response.getWriter().write(ERROR);
+                    break;
+                case "resetBufferSmall":
+                    response.getOutputStream().write(LARGE.getBytes(StandardCharsets.UTF_8));
+                    response.resetBuffer();
+                    response.getOutputStream().write(SMALL.getBytes(StandardCharsets.UTF_8));
+                    break;
+                case "resetBufferLarge":
+                    response.getOutputStream().write(SMALL.getBytes(StandardCharsets.UTF_8));
+                    response.getOutputStream().write(LARGE.getBytes(StandardCharsets.UTF_8));
+                    response.resetBuffer();
+                    response.getOutputStream().write(LARGE.getBytes(StandardCharsets.UTF_8));
+                    break;
+                default:
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            }
+        }
+    }
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        tomcat = new Tomcat();
+        tomcat.setPort(0);
+        tomcat.setBaseDir(Files.createTempDirectory("compression").toString());
+        Context context = tomcat.addContext("", null);
+        Tomcat.addServlet(context, "test", new TestServlet());
+        context.addServletMappingDecoded("/api/test", "test");
+
+        FilterDef filterDef = new FilterDef();
+        filterDef.setFilterName("compression");
+        filterDef.setFilterClass(CompressionFilter.class.getName());
+        // One pooled Deflater: a leaked or reused-while-dirty one shows up at once
+        filterDef.addInitParameter("compression.poolSize", "1");
+        context.addFilterDef(filterDef);
+        FilterMap filterMap = new FilterMap();
+        filterMap.setFilterName("compression");
+        filterMap.addURLPattern("/api/*");
+        context.addFilterMap(filterMap);
+
+        tomcat.getConnector();
+        tomcat.start();
+        port = tomcat.getConnector().getLocalPort();
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        tomcat.stop();
+        tomcat.destroy();
+    }
+
+    @Test
+    void testLargeBodyIsCompressed() throws Exception {
+        Reply reply = get("large", "gzip, deflate");
+        assertEquals(200, reply.status);
+        assertEquals("gzip", reply.encoding);
+        assertEquals("Accept-Encoding", reply.vary);
+        assertNull(reply.contentLength);
+        assertEquals(LARGE, reply.body);
+        assertTrue(reply.wireBytes < LARGE.length());
+    }
+
+    @Test
+    void testWriterIsCompressed() throws Exception {
+        Reply reply = get("writer", "gzip");
+        assertEquals("gzip", reply.encoding);
+        assertEquals(LARGE, reply.body);
+    }
+
+    @Test
+    void testSmallBodyKeepsContentLength() throws Exception {
+        Reply reply = get("small", "gzip");
+        assertNull(reply.encoding);
+        assertEquals(String.valueOf(SMALL.length()), reply.contentLength);
+        assertEquals(SMALL, reply.body);
+    }
+
+    @Test
+    void testGzipNotAccepted() throws Exception {
+        assertNull(get("large", null).encoding);
+        assertNull(get("large", "gzip;q=0").encoding);
+        assertEquals(LARGE, get("large", "br, *;q=0").body);
+    }
+
+    @Test
+    void testPrecompressedPassesThrough() throws Exception {
+        Reply reply = get("precompressed", "gzip");
+        assertEquals("identity", reply.encoding);
+        assertEquals(LARGE, reply.body);
+    }
+
+    @Test
+    void testResetAfterCompressionStarted() throws Exception {
+        for (String kind : new String[] {"reset", "resetWriter"}) {
+            Reply reply = get(kind, "gzip");
+            assertEquals(500, reply.status, kind);
+            assertNull(reply.encoding, kind);
+            assertEquals(ERROR, reply.body, kind);
+        }
+        // The Deflater went back to the pool clean
+        assertEquals(LARGE, get("large", "gzip").body);
+    }
+
+    @Test
+    void testResetBuffer() throws Exception {
+        // Content-Encoding cannot be removed once set: the new body is compressed too
+        Reply small = get("resetBufferSmall", "gzip");
+        assertEquals("gzip", small.encoding);
+        assertEquals(SMALL, small.body);
+
+        Reply large = get("resetBufferLarge", "gzip");
+        assertEquals("gzip", large.encoding);
+        assertEquals(LARGE, large.body);
+    }
+
+    private static Reply get(String kind, String acceptEncoding) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection)
+            new URL("http://localhost:" + port + "/api/test?case=" + kind).openConnection();
+        if (acceptEncoding != null) {
+            connection.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        Reply reply = new Reply();
+        reply.status = connection.getResponseCode();
+        reply.encoding = connection.getHeaderField("Content-Encoding");
+        reply.vary = connection.getHeaderField("Vary");
+        reply.contentLength = connection.getHeaderField("Content-Length");
+
+        byte[] raw;
+        try (InputStream in = reply.status >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+            raw = in.readAllBytes();
+        }
+        reply.wireBytes = raw.length;
+        if ("gzip".equals(reply.encoding)) {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(raw))) {
+                raw = in.readAllBytes();
+            }
+        }
+        reply.body = new String(raw, StandardCharsets.UTF_8);
+        return reply;
+    }
+
+    private static String json(int items) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < items; i++) {
+            json.append(i > 0 ? "," : "").append("{\"id\": ").append(i).append(", \"message\": \"entry\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    private static final class Reply {
+        int status;
+        String encoding;
+        String vary;
+        String contentLength;
+        int wireBytes;
+        String body;
+    }
+}
@@ -2,6 +2,10 @@ package ${package};
 
 import dev.tomeex.tools.Database;
 
+import javax.naming.InitialContext;
+import javax.sql.DataSource;
+import java.sql.Connection;
+
 /**
  * HelloWorld example class demonstrating dev.tomeex.tools.Database usage
  *
@@ -12,7 +16,16 @@ import dev.tomeex.tools.Database;
  */
 public class HelloWorld {
 
+    /**
+     * How long isServerReachable reuses its last result
+     */
+    public static final long REACHABLE_TTL_MILLIS = 5000;
+
+    private static final int VALID_TIMEOUT_SECONDS = 2;
+
     private final String jndiName;
+    private volatile boolean reachable;
+    private volatile long reachableCheckedAt;
 
     /**
      * Constructor with JNDI resource name
@@ -98,10 +111,38 @@ public class HelloWorld {
 
     /**
      * Checks if database server is reachable (simple boolean check)
+     *
+     * Uses Connection.isValid on a pooled connection instead of a query, and
+     * reuses the result for REACHABLE_TTL_MILLIS, so it can be called on
+     * every request. Use testConnection for the error details.
+     *
      * @return true if connection successful, false otherwise
      */
     public boolean isServerReachable() {
-        return testConnection().isSuccess();
+        long now = System.currentTimeMillis();
+        if (reachableCheckedAt != 0 && now - reachableCheckedAt < REACHABLE_TTL_MILLIS) {
+            return reachable;
+        }
+
+        boolean valid;
+        InitialContext context = null;
+        try {
+            context = new InitialContext();
+            DataSource dataSource = (DataSource) context.lookup("java:comp/env/" + jndiName);
+            try (Connection connection = dataSource.getConnection()) {
+                valid = connection.isValid(VALID_TIMEOUT_SECONDS);
+            }
+        } catch (Exception e) {
+            valid = false;
+        } finally {
+            if (context != null) {
+                try { context.close(); } catch (Exception e) {}
+            }
+        }
+
+        reachable = valid;
+        reachableCheckedAt = now;
+        return valid;
     }
 
     /**
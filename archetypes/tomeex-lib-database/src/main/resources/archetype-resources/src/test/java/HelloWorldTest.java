@@ -184,6 +184,36 @@ public class HelloWorldTest {
         assertNotNull(result.getMessage());
     }
 
+    @Test
+    void testServerReachableIsCached() throws Exception {
+        System.setProperty(Context.INITIAL_CONTEXT_FACTORY, "org.apache.naming.java.javaURLContextFactory");
+        System.setProperty(Context.URL_PKG_PREFIXES, "org.apache.naming");
+
+        InitialContext ic = new InitialContext();
+        try {
+            ic.createSubcontext("java:");
+            ic.createSubcontext("java:comp");
+            ic.createSubcontext("java:comp/env");
+            ic.createSubcontext("java:comp/env/jdbc");
+        } catch (NamingException e) {
+            // Subcontexts may already exist
+        }
+
+        BasicDataSource ds = new BasicDataSource();
+        ds.setDriverClassName("org.h2.Driver");
+        ds.setUrl("jdbc:h2:mem:reachable");
+        ic.rebind("java:comp/env/jdbc/ReachableDB", ds);
+
+        HelloWorld hw = new HelloWorld("jdbc/ReachableDB");
+        assertTrue(hw.isServerReachable());
+
+        // Within the TTL the pool is not touched again
+        ds.close();
+        assertTrue(hw.isServerReachable());
+
+        assertFalse(new HelloWorld("jdbc/ReachableDB").isServerReachable());
+    }
+
     @Test
     void testGetJndiName() {
         HelloWorld hw = new HelloWorld("jdbc/TestDB");